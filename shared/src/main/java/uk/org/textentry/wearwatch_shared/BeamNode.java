@@ -0,0 +1,174 @@
+package uk.org.textentry.wearwatch_shared;
+/**
+ * One interpretation of the taps of the current word, as a node in a lattice of them
+ *
+ * Each node only holds its last character and points to the node for the rest, so
+ * interpretations that start the same share those nodes and extending one by a character is
+ * one small object rather than a copy of the string. The string is only built, by walking back
+ * to the root, for the few interpretations that are shown.
+ *
+ * Paths that reach the same language model state have the same future scores, so only the
+ * best of them needs to stay in the beam - the others are merged into it by recombine and
+ * carried along as alternatives to show if there is room.
+ *
+ *  Distributed under MIT License
+ *
+ *  Copyright (c) 2017 Mark Dunlop at University of Strathclyde (Scotland, UK, EU)
+ *  https://personal.cis.strath.ac.uk/mark.dunlop/research/
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE..
+ */
+public final class BeamNode implements TopN.TopNWeightedObject, Comparable<BeamNode> {
+
+    private static final BeamNode[] NONE = new BeamNode[0];
+
+    private final BeamNode parent;
+    private final char c;
+    private final int length;
+    private double weight;
+    private final LanguageModel.ContextState context;
+    private final long lexiconCursor;
+    private BeamNode[] alternatives = NONE; //best first
+
+    /**
+     * The root - the empty interpretation before the first tap of a word
+     * @param context the language model state after the text before the word
+     * @param lexiconCursor the lexicon cursor of the empty prefix, Dawg.NONE if not following the lexicon
+     */
+    public BeamNode(LanguageModel.ContextState context, long lexiconCursor){
+        this.parent = null;
+        this.c = 0;
+        this.length = 0;
+        this.weight = 0;
+        this.context = context;
+        this.lexiconCursor = lexiconCursor;
+    }
+
+    /**
+     * @param parent the interpretation of the earlier taps
+     * @param c the character the latest tap is taken to be
+     * @param weight the log score of the whole interpretation
+     * @param context the language model state after it
+     * @param lexiconCursor its lexicon cursor, Dawg.NONE if it isn't the start of a known word
+     */
+    public BeamNode(BeamNode parent, char c, double weight, LanguageModel.ContextState context, long lexiconCursor){
+        this(parent, c, weight, context, lexiconCursor, true);
+    }
+
+    private BeamNode(BeamNode parent, char c, double weight, LanguageModel.ContextState context, long lexiconCursor, boolean withAlternatives){
+        this.parent = parent;
+        this.c = c;
+        this.length = parent.length+1;
+        this.weight = weight;
+        this.context = context;
+        this.lexiconCursor = lexiconCursor;
+        if (withAlternatives && parent.alternatives.length>0){
+            //the alternatives share the parent's state so they move on by the same score
+            double step = weight - parent.weight;
+            alternatives = new BeamNode[parent.alternatives.length];
+            for (int i=0; i<alternatives.length; i++){
+                BeamNode a = parent.alternatives[i];
+                alternatives[i] = new BeamNode(a, c, a.weight+step, context, Dawg.NONE, false);
+            }
+        }
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public LanguageModel.ContextState getContext() {
+        return context;
+    }
+
+    public long getLexiconCursor() {
+        return lexiconCursor;
+    }
+
+    /**
+     * @return the paths merged into this one, best first - only kept for display so they
+     * don't follow the lexicon
+     */
+    public BeamNode[] getAlternatives() {
+        return alternatives;
+    }
+
+    /**
+     * Merge in other, a path no better than this one with the same language model state, keeping
+     * it and its own alternatives as alternatives of this one
+     * @param max the most alternatives to keep
+     */
+    public void recombine(BeamNode other, int max) {
+        int n = Math.min(max, alternatives.length + 1 + other.alternatives.length);
+        BeamNode[] merged = new BeamNode[n];
+        int i = 0, j = -1, k = 0; //j=-1 stands for other itself
+        while (k < n) {
+            BeamNode a = i < alternatives.length ? alternatives[i] : null;
+            BeamNode b = j < other.alternatives.length ? (j < 0 ? other : other.alternatives[j]) : null;
+            if (b == null || (a != null && a.weight >= b.weight)) {
+                merged[k++] = a;
+                i++;
+            } else {
+                merged[k++] = b;
+                j++;
+            }
+        }
+        alternatives = merged;
+        other.alternatives = NONE;
+    }
+
+    /**
+     * @return the interpretation as a string - O(length) and allocates, so only for display
+     */
+    public String getString() {
+        char[] chars = new char[length];
+        for (BeamNode n = this; n.length>0; n = n.parent)
+            chars[n.length-1] = n.c;
+        return new String(chars);
+    }
+
+    /**
+     * Append the interpretation to sb, without allocating if sb has room
+     */
+    public void appendTo(StringBuilder sb) {
+        int start = sb.length();
+        sb.setLength(start+length);
+        for (BeamNode n = this; n.length>0; n = n.parent)
+            sb.setCharAt(start+n.length-1, n.c);
+    }
+
+    @Override
+    public double getWeight() {
+        return weight;
+    }
+
+    @Override
+    public void addToWeight(double d) {
+        weight += d;
+    }
+
+    public String toString(){
+        return String.format("%s(%.4f)", getString(), weight);
+    }
+
+    @Override
+    public int compareTo(BeamNode o) {
+        return Double.compare(o.weight, weight);
+    }
+}
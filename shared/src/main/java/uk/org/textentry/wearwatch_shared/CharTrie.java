@@ -0,0 +1,601 @@
+package uk.org.textentry.wearwatch_shared;
+/**
+ * A character trie that stores the n-gram contexts of the LanguageModel in primitive arrays
+ *
+ * Each node is one context string (e.g. " th") and holds, for each symbol of the alphabet that
+ * has followed it, the index of the child node (the context extended by that symbol) and the
+ * number of times that symbol has followed the context. Node 0 is the root (empty context).
+ *
+ * Alphabet is fixed at space, the simple Latin 26 character alphabet plus dash and apostrophe.
+ * Contexts or next characters outside this alphabet are not stored.
+ *
+ * Every node also links to the node of its context minus the first character (" th" to "th")
+ * so the longest known context of a growing text can be followed one character at a time.
+ *
+ * Most contexts, especially long ones, are only ever followed by one or two characters, so a
+ * node's (symbol, child, count) entries live in a shared pool in a block just big enough for
+ * them (1, 2, 4 or 8 entries) kept sorted by symbol. A node that outgrows 8 entries switches to
+ * a dense block with a slot for every symbol, indexed directly. Blocks left behind when a node
+ * grows are reused by other nodes.
+ *
+ * On the shipped training data (corpus/common_words.txt) this holds the same counts as the
+ * original HashMap<String,NextStore> of double[128] in about a twentieth of the heap.
+ *
+ *  Distributed under MIT License
+ *
+ *  Copyright (c) 2017 Mark Dunlop at University of Strathclyde (Scotland, UK, EU)
+ *  https://personal.cis.strath.ac.uk/mark.dunlop/research/
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE..
+ */
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class CharTrie implements ContextTrie {
+
+    public static final String ALPHABET = " abcdefghijklmnopqrstuvwxyz-'";
+    public static final int ALPHABET_SIZE = ALPHABET.length();
+    public static final int ROOT = 0;
+
+    private static final int[] SYMBOLS = new int[128];
+    static {
+        for (int c=0; c<128; c++) SYMBOLS[c] = ALPHABET.indexOf(c);
+    }
+
+    private static final int MAX_SPARSE = 8;    // entries a node can have before it goes dense
+    private static final int DENSE = -1;        // value of used[node] for a dense node
+
+    // the entry pool: a sparse node's entries are [block, block+used) sorted by symbol, a dense
+    // node's entry for symbol s is at block+s
+    private byte[] symbols = new byte[4096];    // symbol of each sparse entry
+    private int[] children = new int[4096];     // index of child node, 0 if none (root is never a child)
+    private int[] counts = new int[4096];       // times the symbol followed the node's context
+    private int poolSize = 0;
+    private final int[] freeBlocks = {-1, -1, -1, -1}; // unused blocks of 1, 2, 4 and 8 entries, chained through children
+
+    // one slot per node
+    private int[] block = new int[1024];        // start of the node's entries in the pool
+    private byte[] used = new byte[1024];       // number of entries, or DENSE
+    // kept up to date by learn so queries don't rescan the counts
+    int[] totals = new int[1024];               // sum of the node's counts
+    byte[] distinct = new byte[1024];           // number of non-zero counts of the node, at most ALPHABET_SIZE
+    int[] suffix = new int[1024];               // node of the context without its first character
+    byte[] depth = new byte[1024];              // length of the node's context
+    int nodeCount = 1;
+
+    /**
+     * Symbol index of a character in the trie alphabet
+     * @param c the character
+     * @return index 0...ALPHABET_SIZE-1 or -1 if the character is not in the alphabet
+     */
+    public static int symbolOf(char c){
+        return c<128 ? SYMBOLS[c] : -1;
+    }
+
+    public static char charOf(int symbol){
+        return ALPHABET.charAt(symbol);
+    }
+
+    /**
+     * @return true if word can be typed - it isn't empty and every character is on the keyboard
+     * and isn't a space
+     */
+    static boolean isTypeable(CharSequence word){
+        for (int i=0; i<word.length(); i++)
+            if (symbolOf(word.charAt(i))<=0) return false;
+        return word.length()>0;
+    }
+
+    /**
+     * Parse one line of a word list such as res/raw/wordlist.txt ("0316288 the") or
+     * wordbigrams.txt ("of\tthe\t1000"): words.length+1 tokens separated by spaces or tabs, the
+     * one at countAt a count and the others words. Every loader of those lists uses this so they
+     * all accept the same entries.
+     * @param words filled with the words of the line, lowercased, in order
+     * @return the count, or -1 if the line is to be skipped as it has the wrong number of tokens,
+     * the count isn't a number or a word can't be typed (see isTypeable)
+     */
+    static int parseWordListLine(String line, int countAt, String[] words){
+        String[] tokens = line.trim().split("[ \t]+");
+        if (tokens.length!=words.length+1) return -1;
+        int count;
+        try {
+            count = Integer.parseInt(tokens[countAt]);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        if (count<0) return -1;
+        for (int i=0, w=0; i<tokens.length; i++){
+            if (i==countAt) continue;
+            String word = tokens[i].toLowerCase();
+            if (!isTypeable(word)) return -1;
+            words[w++] = word;
+        }
+        return count;
+    }
+
+    /**
+     * Record that symbol followed the context of node count times
+     */
+    public void add(int node, int symbol, int count){
+        int slot = slotForUpdate(node, symbol);
+        if (counts[slot] == 0)
+            distinct[node]++;
+        counts[slot] += count;
+        totals[node] += count;
+    }
+
+    /**
+     * The child of node for symbol, created if needed - lets a caller that already knows the
+     * nodes of the shorter contexts grow the trie without walking down from the root
+     * @param link the node of the child's context without its first character, i.e. the child
+     * of suffix(node) for symbol, or the root when node is the root
+     */
+    int extend(int node, int symbol, int link){
+        int c = childOrZero(node, symbol);
+        if (c!=0) return c;
+        int n = newNode();
+        int slot = slotForUpdate(node, symbol);   // may grow the pool, so before children is read
+        children[slot] = n;
+        suffix[n] = link;
+        depth[n] = (byte)(depth[node]+1);
+        return n;
+    }
+
+    /**
+     * Add all the counts of other to this trie, creating the contexts this trie is missing
+     *
+     * Nodes are visited in other's node order, which is the order its contexts were first seen,
+     * so new nodes get the numbers they would have had if other's text had been learned here
+     * directly. Merging the tries of consecutive pieces of a corpus in order therefore gives the
+     * same trie, node numbers included, as learning the whole corpus.
+     */
+    public void merge(CharTrie other){
+        int n = other.nodeCount;
+        int[] parent = new int[n];
+        byte[] edge = new byte[n];
+        other.parents(parent, edge);
+
+        // a node's parent and suffix are always created before it, so are already mapped
+        int[] map = new int[n];
+        map[ROOT] = ROOT;
+        for (int node=1; node<n; node++)
+            map[node] = extend(map[parent[node]], edge[node], map[other.suffix[node]]);
+
+        for (int node=0; node<n; node++)
+            for (int e=other.first(node); e<other.end(node); e++){
+                int count = other.counts[e];
+                if (count!=0) add(map[node], other.symbolAt(node, e), count);
+            }
+    }
+
+    /**
+     * A copy of this trie without some of its contexts, for building smaller models
+     *
+     * Counts below the minimum for the length of their context are left out, as are all the
+     * counts of the contexts in drop. Contexts left without counts are removed unless they are
+     * still needed as the parent or suffix of a context that is kept, so the copy is suffix
+     * closed like any other trie. Kept contexts stay in the same order. The root keeps all its
+     * counts.
+     * @param minCount minCount[n-1] is the smallest count kept for contexts of n characters (the
+     * last value is used for longer contexts), or null to keep every count
+     * @param drop contexts to leave out, or null
+     */
+    public CharTrie prune(int[] minCount, boolean[] drop){
+        int n = nodeCount;
+        int[] parent = new int[n];
+        byte[] edge = new byte[n];
+        parents(parent, edge);
+
+        // anything that needs a node comes after it, so working backwards finds them first
+        boolean[] keep = new boolean[n];
+        keep[ROOT] = true;
+        for (int node=n-1; node>ROOT; node--){
+            if (!keep[node] && (drop==null || !drop[node])){
+                int min = minCount(minCount, depth[node]);
+                for (int e=first(node); e<end(node) && !keep[node]; e++)
+                    keep[node] = counts[e]>=min;
+            }
+            if (keep[node]) keep[parent[node]] = keep[suffix[node]] = true;
+        }
+
+        CharTrie trie = new CharTrie();
+        int[] map = new int[n];
+        for (int node=1; node<n; node++)
+            if (keep[node]) map[node] = trie.extend(map[parent[node]], edge[node], map[suffix[node]]);
+        for (int node=0; node<n; node++){
+            if (!keep[node] || (drop!=null && drop[node])) continue;
+            int min = minCount(minCount, depth[node]);
+            for (int e=first(node); e<end(node); e++)
+                if (counts[e]>=min) trie.add(map[node], symbolAt(node, e), counts[e]);
+        }
+        return trie;
+    }
+
+    private static int minCount(int[] minCount, int depth){
+        if (minCount==null || depth==0) return 1;
+        return Math.max(1, minCount[Math.min(depth, minCount.length)-1]);
+    }
+
+    /**
+     * Fill parent and edge, one per node, with each node's parent and the symbol that leads
+     * from the parent to it
+     */
+    private void parents(int[] parent, byte[] edge){
+        for (int node=0; node<nodeCount; node++)
+            for (int e=first(node); e<end(node); e++){
+                int child = children[e];
+                if (child!=0){
+                    parent[child] = node;
+                    edge[child] = (byte) symbolAt(node, e);
+                }
+            }
+    }
+
+    /**
+     * Move from the context of node on by one symbol, Aho-Corasick style
+     * @return the node of the longest context in the trie that is a suffix of node's context
+     * followed by symbol - the root if there is none
+     */
+    public int next(int node, int symbol){
+        if (symbol<0) return ROOT;
+        while (true){
+            int c = childOrZero(node, symbol);
+            if (c!=0) return c;
+            if (node==ROOT) return ROOT;
+            node = suffix[node];
+        }
+    }
+
+    /**
+     * @return the node of the context of node without its first character
+     */
+    public int suffix(int node){
+        return suffix[node];
+    }
+
+    /**
+     * @return the length of the context of node
+     */
+    public int depth(int node){
+        return depth[node];
+    }
+
+    /**
+     * Find the node for the context s[start...end)
+     * @return the node index or -1 if the context has not been learned
+     */
+    public int find(CharSequence s, int start, int end){
+        int node = ROOT;
+        for (int i=start; i<end && node>=0; i++)
+            node = child(node, symbolOf(s.charAt(i)));
+        return node;
+    }
+
+    /**
+     * @return the child of node for symbol or -1 if there is none
+     */
+    public int child(int node, int symbol){
+        if (symbol<0) return -1;
+        int c = childOrZero(node, symbol);
+        return c==0 ? -1 : c;
+    }
+
+    public int count(int node, int symbol){
+        int slot = slot(node, symbol);
+        return slot<0 ? 0 : counts[slot];
+    }
+
+    /**
+     * @return the number of times any symbol followed the context of node
+     */
+    public int total(int node){
+        return totals[node];
+    }
+
+    /**
+     * @return the number of different symbols that have followed the context of node
+     */
+    public int distinct(int node){
+        return distinct[node];
+    }
+
+    /**
+     * Fill out with the next character counts of node indexed by character, i.e. out['e'] is the
+     * number of times 'e' followed the context. Characters outside the alphabet are left untouched.
+     */
+    public void getAll(int node, double[] out){
+        for (int i=0; i<ALPHABET_SIZE; i++)
+            out[ALPHABET.charAt(i)] = count(node, i);
+    }
+
+    public void interpolate(int node, double[] out){
+        double cS = totals[node];
+        if (cS==0) return;
+        double uS = distinct[node];
+        double lambda = 1-(uS/(uS+cS));
+        for (int i=0; i<128; i++)
+            out[i] = (1.0-lambda)*out[i];
+        for (int e=first(node); e<end(node); e++){
+            int count = counts[e];
+            if (count>0){
+                char c = ALPHABET.charAt(symbolAt(node, e));
+                out[c] = lambda*((1.0/cS)*count) + out[c];
+            }
+        }
+    }
+
+    public int size(){
+        return nodeCount;
+    }
+
+    /**
+     * @return approximate heap used by the trie arrays in bytes
+     */
+    public long sizeInBytes(){
+        return 4L*(children.length+counts.length+block.length+totals.length+suffix.length)
+                + symbols.length + used.length + distinct.length + depth.length;
+    }
+
+    /**
+     * Write the trie in the LanguageModel file format
+     *
+     * Stored column by column so it can be read back with bulk array copies: node count, suffix
+     * links, depths, then each node's number of children followed by all the (symbol, child)
+     * edges, then each node's number of distinct next symbols followed by all the (symbol, count)
+     * pairs. Only non-empty slots are stored.
+     * @param quantiser how to store the counts, null for 32 bit ints
+     */
+    public void write(DataOutput out, CountQuantiser quantiser) throws IOException {
+        out.writeInt(nodeCount);
+        for (int node=0; node<nodeCount; node++) out.writeInt(suffix[node]);
+        out.write(depth, 0, nodeCount);
+        writeSparse(out, children, null);
+        writeSparse(out, counts, quantiser);
+    }
+
+    private void writeSparse(DataOutput out, int[] values, CountQuantiser quantiser) throws IOException {
+        int pairs = 0;
+        for (int node=0; node<nodeCount; node++){
+            int n = 0;
+            for (int e=first(node); e<end(node); e++) if (values[e]!=0) n++;
+            out.writeByte(n);
+            pairs += n;
+        }
+        out.writeInt(pairs);
+        for (int node=0; node<nodeCount; node++)
+            for (int e=first(node); e<end(node); e++) if (values[e]!=0) out.writeByte(symbolAt(node, e));
+        for (int node=0; node<nodeCount; node++)
+            for (int e=first(node); e<end(node); e++)
+                if (values[e]!=0){
+                    if (quantiser==null) out.writeInt(values[e]); else quantiser.writeCount(out, values[e]);
+                }
+    }
+
+    /**
+     * Read a trie written by write, e.g. from a memory mapped file
+     * @param quantiser how the counts were written, null for 32 bit ints
+     */
+    static CharTrie read(ByteBuffer in, CountQuantiser quantiser) throws IOException {
+        CharTrie trie = new CharTrie();
+        int n = in.getInt();
+        if (n<1 || n>in.remaining()/5) throw new IOException("Corrupt language model - "+n+" nodes"); //5 bytes a node for suffix and depth
+        trie.allocateNodes(n);
+        trie.nodeCount = n;
+        in.asIntBuffer().get(trie.suffix, 0, n);
+        in.position(in.position()+4*n);
+        checkSuffixes(trie.suffix, n);
+        in.get(trie.depth, 0, n);
+        readSparse(in, trie, true, null);
+        readSparse(in, trie, false, quantiser);
+        return trie;
+    }
+
+    private static void readSparse(ByteBuffer in, CharTrie trie, boolean children, CountQuantiser quantiser) throws IOException {
+        int nodes = trie.nodeCount;
+        byte[] sizes = new byte[nodes];
+        in.get(sizes);
+        int pairs = in.getInt(), total = 0;
+        for (byte size : sizes) {
+            if (size<0) throw new IOException("Corrupt language model - negative entry count");
+            total += size;
+        }
+        //checked before allocating so a corrupt file can't ask for a negative or huge array
+        if (pairs<0 || pairs>in.remaining() || total!=pairs)
+            throw new IOException("Corrupt language model");
+        byte[] symbols = new byte[pairs];
+        in.get(symbols);
+        int[] values;
+        if (quantiser!=null)
+            values = quantiser.readCounts(in, pairs);
+        else {
+            values = new int[pairs];
+            in.asIntBuffer().get(values);
+            in.position(in.position()+4*pairs);
+        }
+        int p = 0;
+        for (int node=0; node<nodes; node++){
+            checkSymbols(symbols, p, p+sizes[node]);
+            for (int i=0; i<sizes[node]; i++, p++)
+                if (children) {
+                    if (values[p]<=node || values[p]>=nodes)
+                        throw new IOException("Corrupt language model - child "+values[p]+" of node "+node);
+                    int slot = trie.slotForUpdate(node, symbols[p]);
+                    trie.children[slot] = values[p];
+                } else {
+                    if (values[p]<=0) throw new IOException("Corrupt language model - count "+values[p]);
+                    trie.add(node, symbols[p], values[p]);
+                }
+        }
+    }
+
+    /**
+     * Check that every node's suffix is an earlier node, as it is created first, so that a
+     * corrupt file can't send a walk along the suffix links out of the trie or round in a loop
+     */
+    static void checkSuffixes(int[] suffix, int nodes) throws IOException {
+        for (int node=ROOT+1; node<nodes; node++)
+            if (suffix[node]<0 || suffix[node]>=node)
+                throw new IOException("Corrupt language model - suffix "+suffix[node]+" of node "+node);
+    }
+
+    /**
+     * Check that symbols[start...end) are symbols of the alphabet in increasing order, as the
+     * node lookups assume
+     */
+    static void checkSymbols(byte[] symbols, int start, int end) throws IOException {
+        for (int i=start, previous=-1; i<end; previous=symbols[i++])
+            if (symbols[i]<=previous || symbols[i]>=ALPHABET_SIZE)
+                throw new IOException("Corrupt language model - symbol "+symbols[i]);
+    }
+
+    /**
+     * @return the pool index of node's entry for symbol, or -1 if it has none
+     */
+    private int slot(int node, int symbol){
+        int n = used[node];
+        if (n==DENSE) return block[node]+symbol;
+        for (int e=block[node], end=e+n; e<end; e++){
+            int s = symbols[e];
+            if (s==symbol) return e;
+            if (s>symbol) break;
+        }
+        return -1;
+    }
+
+    private int childOrZero(int node, int symbol){
+        int slot = slot(node, symbol);
+        return slot<0 ? 0 : children[slot];
+    }
+
+    /**
+     * @return the pool index of node's entry for symbol, adding an empty one (moving the node to
+     * a bigger block if it is full) if there is none
+     */
+    private int slotForUpdate(int node, int symbol){
+        int n = used[node];
+        if (n==DENSE) return block[node]+symbol;
+        int start = block[node], e = start;
+        while (e<start+n && symbols[e]<symbol) e++;
+        if (e<start+n && symbols[e]==symbol) return e;
+
+        if (n==MAX_SPARSE){
+            makeDense(node);
+            return block[node]+symbol;
+        }
+        if (n==capacity(n)){
+            int moved = allocateBlock(capacity(n+1));
+            System.arraycopy(symbols, start, symbols, moved, n);
+            System.arraycopy(children, start, children, moved, n);
+            System.arraycopy(counts, start, counts, moved, n);
+            if (n>0) freeBlock(start, n);
+            e += moved-start;
+            start = block[node] = moved;
+        }
+        int after = start+n-e;
+        System.arraycopy(symbols, e, symbols, e+1, after);
+        System.arraycopy(children, e, children, e+1, after);
+        System.arraycopy(counts, e, counts, e+1, after);
+        symbols[e] = (byte)symbol;
+        children[e] = 0;
+        counts[e] = 0;
+        used[node] = (byte)(n+1);
+        return e;
+    }
+
+    private void makeDense(int node){
+        int dense = allocateBlock(ALPHABET_SIZE);
+        int start = block[node];
+        for (int e=start; e<start+MAX_SPARSE; e++){
+            children[dense+symbols[e]] = children[e];
+            counts[dense+symbols[e]] = counts[e];
+        }
+        freeBlock(start, MAX_SPARSE);
+        block[node] = dense;
+        used[node] = DENSE;
+    }
+
+    /**
+     * @return the size of the block that holds n sparse entries - 0, 1, 2, 4 or 8
+     */
+    private static int capacity(int n){
+        return n<=1 ? n : Integer.highestOneBit(n-1)<<1;
+    }
+
+    /**
+     * @return the start of an unused block of size entries - dense blocks are always new so zeroed
+     */
+    private int allocateBlock(int size){
+        if (size<=MAX_SPARSE){
+            int list = Integer.numberOfTrailingZeros(size);
+            int free = freeBlocks[list];
+            if (free>=0){
+                freeBlocks[list] = children[free];
+                return free;
+            }
+        }
+        if (poolSize+size > counts.length){
+            int length = Math.max(2*counts.length, poolSize+size);
+            symbols = Arrays.copyOf(symbols, length);
+            children = Arrays.copyOf(children, length);
+            counts = Arrays.copyOf(counts, length);
+        }
+        int start = poolSize;
+        poolSize += size;
+        return start;
+    }
+
+    private void freeBlock(int start, int size){
+        int list = Integer.numberOfTrailingZeros(size);
+        children[start] = freeBlocks[list];
+        freeBlocks[list] = start;
+    }
+
+    /**
+     * @return the pool index of node's first entry, to iterate to end(node) with symbolAt
+     */
+    private int first(int node){
+        return block[node];
+    }
+
+    private int end(int node){
+        return block[node] + (used[node]==DENSE ? ALPHABET_SIZE : used[node]);
+    }
+
+    private int symbolAt(int node, int entry){
+        return used[node]==DENSE ? entry-block[node] : symbols[entry];
+    }
+
+    private int newNode(){
+        if (nodeCount == totals.length)
+            allocateNodes(2*nodeCount);
+        return nodeCount++;
+    }
+
+    private void allocateNodes(int nodes){
+        block = Arrays.copyOf(block, nodes);
+        used = Arrays.copyOf(used, nodes);
+        totals = Arrays.copyOf(totals, nodes);
+        distinct = Arrays.copyOf(distinct, nodes);
+        suffix = Arrays.copyOf(suffix, nodes);
+        depth = Arrays.copyOf(depth, nodes);
+    }
+}
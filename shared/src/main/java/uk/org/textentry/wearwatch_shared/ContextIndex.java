@@ -0,0 +1,145 @@
+package uk.org.textentry.wearwatch_shared;
+/**
+ * A hash index from packed context codes to the nodes of a ContextTrie, so a context can be
+ * found with one or two array probes rather than a walk down the trie a character at a time
+ *
+ * A context of up to LanguageModel.MAX_CONTEXT characters packs into a long, 5 bits per
+ * character holding its alphabet symbol plus one, oldest character in the highest bits. The
+ * zero code is the empty context (the root), so no real context ever packs to 0 and 0 can mark
+ * an empty slot. Codes roll forward a character at a time with roll, and the code of any
+ * suffix of a context is just its low bits, so the longest known suffix of some text is found
+ * by masking rather than by following suffix links.
+ *
+ * Keys and nodes are kept in two parallel arrays with linear probing, allocating nothing on a
+ * lookup. The index is a snapshot - it does not see contexts the trie learns after it is built.
+ *
+ *  Distributed under MIT License
+ *
+ *  Copyright (c) 2017 Mark Dunlop at University of Strathclyde (Scotland, UK, EU)
+ *  https://personal.cis.strath.ac.uk/mark.dunlop/research/
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE..
+ */
+public class ContextIndex {
+
+    public static final int BITS_PER_SYMBOL = 5;
+    public static final long EMPTY = 0;     // code of the empty context, also marks an empty slot
+    private static final long MASK = (1L<<(BITS_PER_SYMBOL*LanguageModel.MAX_CONTEXT))-1;
+
+    private final long[] keys;              // EMPTY or the code of the context in nodes[slot]
+    private final int[] nodes;
+    private final int shift;
+    private final int size;
+
+    /**
+     * Index every context of trie
+     */
+    public ContextIndex(ContextTrie trie){
+        size = trie.size();
+        int capacity = Integer.highestOneBit(Math.max(1, size+size/3))*2; // at most three quarters full
+        keys = new long[capacity];
+        nodes = new int[capacity];
+        shift = 64-Integer.numberOfTrailingZeros(capacity);
+        // a node's parent always comes before it so its code is already known
+        long[] codes = new long[size];
+        for (int node=0; node<size; node++){
+            if (node!=CharTrie.ROOT) put(codes[node], node);
+            for (int symbol=0; symbol<CharTrie.ALPHABET_SIZE; symbol++){
+                int child = trie.child(node, symbol);
+                if (child>=0) codes[child] = (codes[node]<<BITS_PER_SYMBOL) | (symbol+1);
+            }
+        }
+    }
+
+    /**
+     * Move a code on by one character, dropping the oldest once it holds MAX_CONTEXT
+     * @param symbol the next symbol - if outside the alphabet (-1) no context can span it so
+     * the code starts again empty
+     */
+    public static long roll(long code, int symbol){
+        if (symbol<0) return EMPTY;
+        return ((code<<BITS_PER_SYMBOL) | (symbol+1)) & MASK;
+    }
+
+    /**
+     * @return the code of the context s[start...end) or -1 if it has a character outside the
+     * alphabet or is longer than MAX_CONTEXT, so could not be in the trie
+     */
+    public static long code(CharSequence s, int start, int end){
+        if (end-start>LanguageModel.MAX_CONTEXT) return -1;
+        long code = EMPTY;
+        for (int i=start; i<end; i++){
+            int symbol = CharTrie.symbolOf(s.charAt(i));
+            if (symbol<0) return -1;
+            code = (code<<BITS_PER_SYMBOL) | (symbol+1);
+        }
+        return code;
+    }
+
+    /**
+     * @return the number of characters in the context of code
+     */
+    public static int length(long code){
+        return (64-Long.numberOfLeadingZeros(code)+BITS_PER_SYMBOL-1)/BITS_PER_SYMBOL;
+    }
+
+    /**
+     * @return the node of the context code, or -1 if the trie does not have it
+     */
+    public int get(long code){
+        if (code==EMPTY) return CharTrie.ROOT;
+        if (code<0) return -1;
+        for (int slot=slotOf(code); ; slot=(slot+1)&(keys.length-1)){
+            long key = keys[slot];
+            if (key==code) return nodes[slot];
+            if (key==EMPTY) return -1;
+        }
+    }
+
+    /**
+     * @return the node of the longest suffix of the context code that the trie has - the root
+     * if none - which is where the trie's next would have got to after the same characters
+     */
+    public int longest(long code){
+        for (int n=length(code); n>0; n--){
+            int node = get(code & ((1L<<(BITS_PER_SYMBOL*n))-1));
+            if (node>=0) return node;
+        }
+        return CharTrie.ROOT;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public long sizeInBytes(){
+        return 12L*keys.length;
+    }
+
+    private int slotOf(long code){
+        return (int)((code*0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    private void put(long code, int node){
+        int slot = slotOf(code);
+        while (keys[slot]!=EMPTY) slot = (slot+1)&(keys.length-1);
+        keys[slot] = code;
+        nodes[slot] = node;
+    }
+}
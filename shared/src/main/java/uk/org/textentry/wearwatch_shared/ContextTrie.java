@@ -0,0 +1,101 @@
+package uk.org.textentry.wearwatch_shared;
+/**
+ * Read access to the n-gram contexts of the LanguageModel
+ *
+ * Nodes are numbered from the root (CharTrie.ROOT) and symbols are indexes into
+ * CharTrie.ALPHABET. Implemented by CharTrie, which can still learn, and FrozenCharTrie, a
+ * compact read-only copy. Both number the same contexts the same way.
+ *
+ *  Distributed under MIT License
+ *
+ *  Copyright (c) 2017 Mark Dunlop at University of Strathclyde (Scotland, UK, EU)
+ *  https://personal.cis.strath.ac.uk/mark.dunlop/research/
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE..
+ */
+import java.io.DataOutput;
+import java.io.IOException;
+
+public interface ContextTrie {
+
+    /**
+     * Move from the context of node on by one symbol, Aho-Corasick style
+     * @return the node of the longest context in the trie that is a suffix of node's context
+     * followed by symbol - the root if there is none
+     */
+    int next(int node, int symbol);
+
+    /**
+     * @return the node of the context of node without its first character
+     */
+    int suffix(int node);
+
+    /**
+     * @return the length of the context of node
+     */
+    int depth(int node);
+
+    /**
+     * Find the node for the context s[start...end)
+     * @return the node index or -1 if the context has not been learned
+     */
+    int find(CharSequence s, int start, int end);
+
+    /**
+     * @return the child of node for symbol or -1 if there is none
+     */
+    int child(int node, int symbol);
+
+    int count(int node, int symbol);
+
+    /**
+     * @return the number of times any symbol followed the context of node
+     */
+    int total(int node);
+
+    /**
+     * @return the number of different symbols that have followed the context of node
+     */
+    int distinct(int node);
+
+    /**
+     * Fill out with the next character counts of node indexed by character, i.e. out['e'] is the
+     * number of times 'e' followed the context. Characters outside the alphabet are left untouched.
+     */
+    void getAll(int node, double[] out);
+
+    /**
+     * One Witten Bell step: out, the probabilities for node's suffix, becomes the probabilities
+     * for node by weighting node's own counts against it. Left alone if node has no counts.
+     */
+    void interpolate(int node, double[] out);
+
+    int size();
+
+    /**
+     * @return approximate heap used by the trie arrays in bytes
+     */
+    long sizeInBytes();
+
+    /**
+     * Write the trie in the LanguageModel file format (see CharTrie.write)
+     * @param quantiser how to store the counts, null for 32 bit ints
+     */
+    void write(DataOutput out, CountQuantiser quantiser) throws IOException;
+}
@@ -0,0 +1,118 @@
+package uk.org.textentry.wearwatch_shared;
+/**
+ * Stores the counts of a language model file, and of a frozen model loaded from it, in 8 or 16
+ * bits rather than 32 by rounding each count to the nearest of 256 or 65536 levels spaced
+ * evenly on a log scale from 1 to the largest count
+ *
+ * Small counts, where every step matters, stay exact (up to a few thousand with 16 bits) while
+ * large ones are rounded to within a fixed percentage (2-3% with 8 bits for the shipped
+ * model), which barely moves the Witten Bell probabilities. Only the largest count and the
+ * number of bits are stored - the levels are worked out again when reading.
+ *
+ *  Distributed under MIT License
+ *
+ *  Copyright (c) 2017 Mark Dunlop at University of Strathclyde (Scotland, UK, EU)
+ *  https://personal.cis.strath.ac.uk/mark.dunlop/research/
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE..
+ */
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class CountQuantiser {
+
+    private final int bits;
+    private final int maxCount;
+    private final double step;   // log of the ratio between neighbouring levels
+    private final int[] levels;  // the count each code stands for
+
+    /**
+     * @param bits 8 or 16
+     * @param maxCount the largest count to be stored
+     */
+    public CountQuantiser(int bits, int maxCount){
+        if (bits!=8 && bits!=16) throw new IllegalArgumentException("Counts can only be quantised to 8 or 16 bits, not "+bits);
+        if (maxCount<1) throw new IllegalArgumentException("Largest count must be positive");
+        this.bits = bits;
+        this.maxCount = maxCount;
+        int codes = 1<<bits;
+        step = Math.log(maxCount)/(codes-1);
+        levels = new int[codes];
+        for (int code=0; code<codes; code++)
+            levels[code] = (int) Math.min(maxCount, Math.round(Math.exp(code*step)));
+    }
+
+    public int getBits(){
+        return bits;
+    }
+
+    public int getMaxCount(){
+        return maxCount;
+    }
+
+    /**
+     * @return the code of the level nearest count on a log scale
+     */
+    public int encode(int count){
+        if (count<=1 || step==0) return 0;
+        return (int) Math.min(levels.length-1, Math.round(Math.log(count)/step));
+    }
+
+    public int decode(int code){
+        return levels[code];
+    }
+
+    /**
+     * @return the count as it will be read back
+     */
+    public int round(int count){
+        return decode(encode(count));
+    }
+
+    public void writeCount(DataOutput out, int count) throws IOException {
+        if (bits==8) out.writeByte(encode(count)); else out.writeShort(encode(count));
+    }
+
+    /**
+     * Read n counts written by writeCount, decoded - for a CharTrie, which may learn more. A
+     * FrozenCharTrie keeps the codes and decodes each count as it is looked up.
+     */
+    public int[] readCounts(ByteBuffer in, int n){
+        int[] counts = new int[n];
+        for (int i=0; i<n; i++)
+            counts[i] = decode(bits==8 ? in.get()&0xFF : in.getShort()&0xFFFF);
+        return counts;
+    }
+
+    /**
+     * Write the settings for read
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(bits);
+        out.writeInt(maxCount);
+    }
+
+    static CountQuantiser read(ByteBuffer in) throws IOException {
+        int bits = in.getInt(), maxCount = in.getInt();
+        if ((bits!=8 && bits!=16) || maxCount<1)
+            throw new IOException("Corrupt language model - "+bits+" bit counts up to "+maxCount);
+        return new CountQuantiser(bits, maxCount);
+    }
+}
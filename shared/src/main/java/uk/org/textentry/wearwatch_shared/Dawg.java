@@ -0,0 +1,347 @@
+package uk.org.textentry.wearwatch_shared;
+/**
+ * The words the keyboard knows as a minimal acyclic word graph (DAWG), with the most frequent
+ * completions of every prefix, queried straight from a memory mapped file so it costs next to
+ * no heap and nothing is parsed at startup
+ *
+ * Built from a word frequency list by DawgBuilder on the build machine. Words sharing an
+ * ending share the graph nodes for it, as well as those for their common beginnings as in a
+ * trie. Words are numbered in symbol order (see CharTrie.ALPHABET, so letters sort before '-'
+ * and the apostrophe), which makes the words starting with any prefix a range of numbers: a
+ * prefix is followed as a cursor holding the number of its first word and the edge it was
+ * reached by. The top k completions of a prefix are then the k most frequent words of its
+ * range, found from the top k of each block of BLOCK words and of each power of two of blocks.
+ *
+ * Format (big endian): magic "WKDG", version, alphabet size, k, number of words, number of
+ * edges, then:
+ *  - edges, one int each: bits 0-4 the symbol (see CharTrie.symbolOf), bit 5 set if a word
+ *    ends after the edge, bit 6 set on the last edge of a node and bits 7-31 the index of the
+ *    first edge of the node it leads to (0 for none). The edges of a node are consecutive and
+ *    sorted by symbol, the root's start at 0 and every edge leads to a later node.
+ *  - totals, one int per edge: the number of words through the edges of its node up to and
+ *    including it, so a word's number is the sum along its path of the totals of the edges
+ *    before the ones taken, plus the words ended on the way.
+ *  - ranks, one char per word by number: its place in the word list by frequency, most
+ *    frequent (0) first.
+ *  - top, k chars for each node of a complete binary tree whose leaves are the blocks of
+ *    BLOCK words (node 1 is the root, the children of node i are 2i and 2i+1): the word numbers
+ *    of the node's k most frequent words, most frequent first, padded with NO_WORD.
+ *
+ *  Distributed under MIT License
+ *
+ *  Copyright (c) 2017 Mark Dunlop at University of Strathclyde (Scotland, UK, EU)
+ *  https://personal.cis.strath.ac.uk/mark.dunlop/research/
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE..
+ */
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+
+public class Dawg {
+
+    public static final long ROOT = 0; //cursor of the empty prefix
+    public static final long NONE = -1; //cursor of a prefix no word starts with
+
+    static final int FILE_MAGIC = 0x574B4447; //"WKDG"
+    static final int FILE_VERSION = 2;
+
+    static final int SYMBOL_MASK = 0x1F;
+    static final int WORD_END = 1<<5;
+    static final int LAST_EDGE = 1<<6;
+    static final int TARGET_SHIFT = 7;
+    static final int MAX_EDGES = 1<<(32-TARGET_SHIFT);
+    static final int MAX_WORDS = Character.MAX_VALUE; //word numbers and ranks are stored as chars
+    static final int MAX_WORD_LENGTH = 255;
+    static final char NO_WORD = Character.MAX_VALUE;
+    static final int BLOCK = 16; //words per leaf of the completion tree
+
+    private final int k, words, leaves;
+    private final IntBuffer edges, totals;
+    private final CharBuffer ranks, top;
+
+    private Dawg(int k, int words, IntBuffer edges, IntBuffer totals, CharBuffer ranks, CharBuffer top){
+        this.k = k;
+        this.words = words;
+        this.leaves = leaves(words);
+        this.edges = edges;
+        this.totals = totals;
+        this.ranks = ranks;
+        this.top = top;
+    }
+
+    /**
+     * @return the number of leaves of the completion tree for n words - a power of two
+     */
+    static int leaves(int n){
+        int blocks = (n+BLOCK-1)/BLOCK, leaves = 1;
+        while (leaves<blocks) leaves *= 2;
+        return leaves;
+    }
+
+    /**
+     * @param in buffer positioned at the start of a DAWG written by DawgBuilder, typically memory
+     *           mapped - it is used in place, not copied, so must not be changed afterwards
+     * @throws IOException if the buffer does not hold a DAWG of this version
+     */
+    public static Dawg read(ByteBuffer in) throws IOException {
+        try {
+            if (in.getInt() != FILE_MAGIC)
+                throw new IOException("Not a DAWG lexicon file");
+            int version = in.getInt();
+            if (version != FILE_VERSION)
+                throw new IOException("Unsupported DAWG lexicon version "+version);
+            if (in.getInt() != CharTrie.ALPHABET_SIZE)
+                throw new IOException("DAWG lexicon built for a different alphabet");
+            int k = in.getInt(), words = in.getInt(), edges = in.getInt();
+            //checked before slicing so a corrupt file can't ask for a negative or huge buffer
+            if (k<1 || words<0 || words>MAX_WORDS || edges<0 || edges>MAX_EDGES
+                    || in.remaining() < 8L*edges + 2L*words + 4L*leaves(words)*k)
+                throw new IOException("Corrupt DAWG lexicon - "+words+" words in "+edges+" edges");
+            Dawg dawg = new Dawg(k, words, slice(in, 4*edges).asIntBuffer(), slice(in, 4*edges).asIntBuffer(),
+                    slice(in, 2*words).asCharBuffer(), slice(in, 4*leaves(words)*k).asCharBuffer());
+            dawg.check();
+            return dawg;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("DAWG lexicon file is truncated");
+        }
+    }
+
+    /**
+     * @return the next n bytes of in as a buffer of their own, moving in on past them
+     */
+    private static ByteBuffer slice(ByteBuffer in, int n){
+        ByteBuffer bytes = in.slice();
+        bytes.limit(n);
+        in.position(in.position()+n);
+        return bytes;
+    }
+
+    /**
+     * Check that the graph is sound, so a corrupt file is found on loading rather than while
+     * typing - one pass over the file without copying it. Every edge must lead forward to the
+     * start of a node, so there are no loops, and the words through it must be the ones its
+     * node counts, so every word number has a path.
+     */
+    private void check() throws IOException {
+        int n = edges.limit(), previousSymbol = 0, previousTotal = 0;
+        if (n>0 && (edges.get(n-1)&LAST_EDGE)==0)
+            throw new IOException("Corrupt DAWG lexicon - unfinished node");
+        for (int edge=0; edge<n; edge++){
+            int e = edges.get(edge), symbol = e&SYMBOL_MASK, target = e>>>TARGET_SHIFT, total = totals.get(edge);
+            if (symbol<=previousSymbol || symbol>=CharTrie.ALPHABET_SIZE)
+                throw new IOException("Corrupt DAWG lexicon - bad symbol");
+            if (target==0 ? (e&WORD_END)==0 : target<=edge || target>=n || (edges.get(target-1)&LAST_EDGE)==0)
+                throw new IOException("Corrupt DAWG lexicon - bad edge");
+            int through = ((e&WORD_END)!=0 ? 1 : 0) + (target==0 ? 0 : totals.get(lastEdge(target)));
+            if (total!=previousTotal+through || total>words)
+                throw new IOException("Corrupt DAWG lexicon - bad word count");
+            boolean last = (e&LAST_EDGE)!=0;
+            previousSymbol = last ? 0 : symbol;
+            previousTotal = last ? 0 : total;
+        }
+        if (n==0 ? words!=0 : totals.get(lastEdge(0))!=words)
+            throw new IOException("Corrupt DAWG lexicon - edges don't hold the words");
+        for (int w=0; w<words; w++)
+            if (ranks.get(w)>=words) throw new IOException("Corrupt DAWG lexicon - bad rank");
+        for (int i=0; i<top.limit(); i++)
+            if (top.get(i)>=words && top.get(i)!=NO_WORD) throw new IOException("Corrupt DAWG lexicon - bad completion");
+    }
+
+    /**
+     * @return the last edge of the node whose edges start at edge
+     */
+    private int lastEdge(int edge){
+        while ((edges.get(edge)&LAST_EDGE)==0) edge++;
+        return edge;
+    }
+
+    /**
+     * @param cursor a prefix, from ROOT, child or find
+     * @return the cursor for the prefix extended by c or NONE if no word starts that way
+     */
+    public long child(long cursor, char c){
+        int symbol = CharTrie.symbolOf(c);
+        int from = edgeOf(cursor), edge = firstEdge(from);
+        if (symbol<=0 || edge<0) return NONE;
+        int base = firstWord(cursor) + (wordEnds(from) ? 1 : 0), word = base;
+        for (; ; edge++){
+            int e = edges.get(edge), s = e&SYMBOL_MASK;
+            if (s==symbol) return (long)word<<32 | (edge+1);
+            if (s>symbol || (e&LAST_EDGE)!=0) return NONE;
+            word = base + totals.get(edge);
+        }
+    }
+
+    /**
+     * Follow the prefix s[start...end) from the root
+     * @return its cursor or NONE if no word starts with the prefix
+     */
+    public long find(CharSequence s, int start, int end){
+        long cursor = ROOT;
+        for (int i=start; i<end && cursor!=NONE; i++)
+            cursor = child(cursor, s.charAt(i));
+        return cursor;
+    }
+
+    /**
+     * @return the number of the word that is the prefix of cursor, or -1 if it isn't a word
+     */
+    public int wordAt(long cursor){
+        return wordEnds(edgeOf(cursor)) ? firstWord(cursor) : -1;
+    }
+
+    /**
+     * Copy the numbers of the most frequent words starting with the prefix of cursor, including
+     * the prefix itself if it's a word, into out from offset, most frequent first - no Strings
+     * are made, so a caller can look at many prefixes and only call word for the ones it shows
+     * @return the number of words copied - at most k and no more than fit in out
+     */
+    public int completions(long cursor, int[] out, int offset){
+        int max = Math.min(k, out.length-offset);
+        int lo = firstWord(cursor), hi = Math.min(words, lo+wordsStartingWith(cursor));
+        if (max<=0 || lo>=hi) return 0;
+        int size = 0;
+        int firstBlock = (lo+BLOCK-1)/BLOCK, endBlock = hi/BLOCK;
+        if (firstBlock>=endBlock){
+            for (int w=lo; w<hi; w++) size = offer(w, out, offset, size, max);
+            return size;
+        }
+        for (int w=lo; w<firstBlock*BLOCK; w++) size = offer(w, out, offset, size, max);
+        for (int w=endBlock*BLOCK; w<hi; w++) size = offer(w, out, offset, size, max);
+        //the whole blocks from the fewest tree nodes that cover them exactly
+        for (int l=firstBlock+leaves, r=endBlock+leaves; l<r; l>>=1, r>>=1){
+            if ((l&1)!=0) size = offerNode(l++, out, offset, size, max);
+            if ((r&1)!=0) size = offerNode(--r, out, offset, size, max);
+        }
+        return size;
+    }
+
+    /**
+     * Offer the top words of a completion tree node to out[offset...offset+size)
+     * @return the new size
+     */
+    private int offerNode(int node, int[] out, int offset, int size, int max){
+        for (int i=node*k, end=i+k; i<end; i++){
+            char w = top.get(i);
+            if (w==NO_WORD || (size==max && ranks.get(w)>=ranks.get(out[offset+size-1]))) break;
+            size = offer(w, out, offset, size, max);
+        }
+        return size;
+    }
+
+    /**
+     * Add word w to out[offset...offset+size), kept most frequent first, if it is among the max
+     * most frequent
+     * @return the new size
+     */
+    private int offer(int w, int[] out, int offset, int size, int max){
+        int rank = ranks.get(w);
+        if (size==max && rank>=ranks.get(out[offset+size-1])) return size;
+        int at = Math.min(size, max-1);
+        while (at>0 && ranks.get(out[offset+at-1])>rank){
+            out[offset+at] = out[offset+at-1];
+            at--;
+        }
+        out[offset+at] = w;
+        return size<max ? size+1 : size;
+    }
+
+    /**
+     * @return word number w, spelled out from its path through the graph
+     */
+    public String word(int w){
+        if (w<0 || w>=words) throw new IllegalArgumentException("No word "+w+" in a lexicon of "+words);
+        StringBuilder word = new StringBuilder();
+        int edge = -1, rest = w; //rest is w's place among the words through edge
+        while (word.length()<=MAX_WORD_LENGTH){
+            if (wordEnds(edge) && rest--==0) return word.toString();
+            int e = firstEdge(edge), before = 0;
+            if (e<0) break;
+            while (totals.get(e)<=rest && (edges.get(e)&LAST_EDGE)==0)
+                before = totals.get(e++);
+            word.append(CharTrie.charOf(edges.get(e)&SYMBOL_MASK));
+            rest -= before;
+            edge = e;
+        }
+        throw new IllegalStateException("Corrupt DAWG lexicon - no path to word "+w);
+    }
+
+    /**
+     * @return the number of words starting with the prefix of cursor, itself included
+     */
+    private int wordsStartingWith(long cursor){
+        int from = edgeOf(cursor);
+        if (from<0) return words;
+        int edge = firstEdge(from), n = wordEnds(from) ? 1 : 0;
+        return edge<0 ? n : n + totals.get(lastEdge(edge));
+    }
+
+    /**
+     * @return the edge the prefix of cursor was reached by, -1 for the root
+     */
+    private static int edgeOf(long cursor){
+        return (int)cursor - 1;
+    }
+
+    /**
+     * @return the number of the first word starting with the prefix of cursor
+     */
+    private static int firstWord(long cursor){
+        return (int)(cursor>>>32);
+    }
+
+    /**
+     * @return the first edge of the node edge leads to (the root for -1), -1 if it has none
+     */
+    private int firstEdge(int edge){
+        if (edge<0) return edges.limit()==0 ? -1 : 0;
+        int target = edges.get(edge)>>>TARGET_SHIFT;
+        return target==0 ? -1 : target;
+    }
+
+    private boolean wordEnds(int edge){
+        return edge>=0 && (edges.get(edge)&WORD_END)!=0;
+    }
+
+    /**
+     * @return the number of completions kept for each prefix
+     */
+    public int completionsPerPrefix(){
+        return k;
+    }
+
+    public int wordCount(){
+        return words;
+    }
+
+    public int edgeCount(){
+        return edges.limit();
+    }
+
+    /**
+     * @return the size of the graph and completion tables in bytes - in the mapped file, not on
+     * the heap
+     */
+    public long sizeInBytes(){
+        return 8L*edges.limit() + 2L*words + 4L*leaves*k;
+    }
+}
@@ -0,0 +1,442 @@
+package uk.org.textentry.wearwatch_shared;
+/**
+ * Builds the minimal DAWG of a word frequency list and writes it in the Dawg file format,
+ * with the frequency ranks and completion tree that give each prefix its top k completions
+ *
+ * Words are added in sorted order and the graph is minimised as it grows (Daciuk et al's
+ * incremental algorithm): once a word has been added, the nodes at the end of the previous
+ * word that the new one doesn't share can't change any more, so each is swapped for an equal
+ * node already in the graph or registered as a new one.
+ *
+ * Run by WordModelCompiler to make the lexicon asset, and also a command line tool, so must
+ * only use plain Java (no Android classes) as it runs on the build machine.
+ *
+ * Usage: DawgBuilder wordlist.txt [lexicon.dawg]
+ *
+ * Without an output file it reports the size and lookup speed of the DAWG against a
+ * HashSet<String> of the same words.
+ *
+ *  Distributed under MIT License
+ *
+ *  Copyright (c) 2017 Mark Dunlop at University of Strathclyde (Scotland, UK, EU)
+ *  https://personal.cis.strath.ac.uk/mark.dunlop/research/
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE..
+ */
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+public class DawgBuilder {
+
+    /**
+     * Orders words as the Dawg stores them, by CharTrie symbol rather than by character
+     */
+    static final Comparator<String> SYMBOL_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String a, String b) {
+            for (int i=0; i<a.length() && i<b.length(); i++){
+                int diff = CharTrie.symbolOf(a.charAt(i)) - CharTrie.symbolOf(b.charAt(i));
+                if (diff!=0) return diff;
+            }
+            return a.length() - b.length();
+        }
+    };
+
+    private static final class State {
+        boolean word;
+        int edges = 0;
+        byte[] symbols = new byte[2];
+        State[] targets = new State[2];
+        int first = -1; //index of the first edge in the file, set when written
+        int below = -1; //number of words after this state, set when written
+
+        void add(int symbol, State target){
+            if (edges==symbols.length){
+                symbols = Arrays.copyOf(symbols, 2*edges);
+                targets = Arrays.copyOf(targets, 2*edges);
+            }
+            symbols[edges] = (byte)symbol;
+            targets[edges++] = target;
+        }
+
+        // equal if they accept the same endings - targets are compared by identity as they
+        // have already been minimised
+        @Override
+        public boolean equals(Object o) {
+            State s = (State) o;
+            if (word!=s.word || edges!=s.edges) return false;
+            for (int i=0; i<edges; i++)
+                if (symbols[i]!=s.symbols[i] || targets[i]!=s.targets[i]) return false;
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = word ? 1 : 0;
+            for (int i=0; i<edges; i++)
+                hash = 31*(31*hash + symbols[i]) + System.identityHashCode(targets[i]);
+            return hash;
+        }
+    }
+
+    private final int k;
+    private final HashMap<State, State> register = new HashMap<>();
+    private State[] path = new State[32]; //path[i] is the state after the first i characters of previous
+    private String previous = "";
+    private String[] spellings = new String[1024]; //by word number
+    private int[] counts = new int[1024]; //by word number
+    private int words = 0;
+    private boolean finished = false;
+
+    /**
+     * @param k the number of completions to keep for each prefix
+     */
+    public DawgBuilder(int k){
+        if (k<1) throw new IllegalArgumentException("Need at least one completion per prefix");
+        this.k = k;
+        path[0] = new State();
+    }
+
+    /**
+     * Read a word frequency list, one "count word" per line, lowercasing the words, skipping
+     * any that can't be typed or are longer than Dawg.MAX_WORD_LENGTH and summing the counts
+     * of repeats
+     * @param in the list - read to the end but not closed
+     * @param k the number of completions to keep for each prefix
+     */
+    public static DawgBuilder fromWordList(Reader in, int k) throws IOException {
+        HashMap<String, Integer> counts = new HashMap<>();
+        BufferedReader lines = new BufferedReader(in);
+        String[] entry = new String[1];
+        for (String line; (line = lines.readLine()) != null; ){
+            int count = CharTrie.parseWordListLine(line, 0, entry);
+            if (count<0 || entry[0].length()>Dawg.MAX_WORD_LENGTH) continue;
+            Integer total = counts.get(entry[0]);
+            counts.put(entry[0], total==null ? count : total+count);
+        }
+        String[] words = counts.keySet().toArray(new String[counts.size()]);
+        Arrays.sort(words, SYMBOL_ORDER);
+        DawgBuilder builder = new DawgBuilder(k);
+        for (String word : words)
+            builder.add(word, counts.get(word));
+        return builder;
+    }
+
+    /**
+     * Add a word - words must be added in SYMBOL_ORDER, each once
+     * @param word lowercase and only characters on the keyboard
+     */
+    public void add(String word, int count){
+        if (finished) throw new IllegalStateException("DAWG already written");
+        if (!CharTrie.isTypeable(word) || word.length()>Dawg.MAX_WORD_LENGTH)
+            throw new IllegalArgumentException("Can't add \""+word+"\" to a DAWG");
+        if (words>0 && SYMBOL_ORDER.compare(previous, word)>=0)
+            throw new IllegalArgumentException("DAWG words must be added in order, \""+word+"\" came after \""+previous+"\"");
+        int common = 0;
+        while (common<previous.length() && common<word.length() && previous.charAt(common)==word.charAt(common))
+            common++;
+        minimise(common);
+        if (word.length()>=path.length) path = Arrays.copyOf(path, 2*word.length());
+        for (int i=common; i<word.length(); i++){
+            State next = new State();
+            path[i].add(CharTrie.symbolOf(word.charAt(i)), next);
+            path[i+1] = next;
+        }
+        path[word.length()].word = true;
+        if (words==counts.length) {
+            spellings = Arrays.copyOf(spellings, 2*words);
+            counts = Arrays.copyOf(counts, 2*words);
+        }
+        spellings[words] = word;
+        counts[words++] = count;
+        previous = word;
+    }
+
+    /**
+     * Swap the states of previous below depth for equal ones already registered, or register them
+     */
+    private void minimise(int depth){
+        for (int i=previous.length(); i>depth; i--){
+            State state = path[i], equal = register.get(state);
+            if (equal==null)
+                register.put(state, state);
+            else
+                path[i-1].targets[path[i-1].edges-1] = equal;
+        }
+    }
+
+    /**
+     * Finish the graph and write it as described in Dawg - nothing can be added afterwards
+     * @param os stream to write to - flushed but not closed
+     */
+    public void write(OutputStream os) throws IOException {
+        minimise(0);
+        finished = true;
+        State root = path[0];
+
+        //lay the states out each with its edges together, every state after all those with edges
+        //to it (so the root first) - Dawg.read checks edges only lead forward, which rules out loops
+        List<State> order = new ArrayList<>();
+        postOrder(root, order);
+        Collections.reverse(order);
+        int edges = 0;
+        for (State state : order){
+            state.first = edges;
+            edges += state.edges;
+        }
+        if (edges>Dawg.MAX_EDGES) throw new IOException("Too many edges for a DAWG: "+edges);
+        if (words>Dawg.MAX_WORDS) throw new IOException("Too many words for a DAWG: "+words);
+        countBelow(root);
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+        out.writeInt(Dawg.FILE_MAGIC);
+        out.writeInt(Dawg.FILE_VERSION);
+        out.writeInt(CharTrie.ALPHABET_SIZE);
+        out.writeInt(k);
+        out.writeInt(words);
+        out.writeInt(edges);
+        for (State state : order)
+            for (int e=0; e<state.edges; e++){
+                State target = state.targets[e];
+                out.writeInt(state.symbols[e]
+                        | (target.word ? Dawg.WORD_END : 0)
+                        | (e==state.edges-1 ? Dawg.LAST_EDGE : 0)
+                        | (target.edges==0 ? 0 : target.first<<Dawg.TARGET_SHIFT));
+            }
+        for (State state : order){
+            int total = 0;
+            for (int e=0; e<state.edges; e++){
+                total += (state.targets[e].word ? 1 : 0) + state.targets[e].below;
+                out.writeInt(total);
+            }
+        }
+        char[] ranks = ranks();
+        for (char rank : ranks) out.writeChar(rank);
+        for (char w : completionTree(ranks)) out.writeChar(w);
+        out.flush();
+    }
+
+    /**
+     * Add the states with edges reachable from state to order, each after those it leads to
+     */
+    private static void postOrder(State state, List<State> order){
+        state.first = 0; //seen
+        for (int e=0; e<state.edges; e++){
+            State target = state.targets[e];
+            if (target.first<0 && target.edges>0) postOrder(target, order);
+        }
+        order.add(state);
+    }
+
+    /**
+     * @return each word's place in the word list by frequency, most frequent (0) first and
+     * words with the same count in alphabetical order
+     */
+    private char[] ranks(){
+        Integer[] byFrequency = new Integer[words];
+        for (int i=0; i<words; i++) byFrequency[i] = i;
+        Arrays.sort(byFrequency, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int byCount = Integer.compare(counts[b], counts[a]);
+                return byCount!=0 ? byCount : spellings[a].compareTo(spellings[b]);
+            }
+        });
+        char[] ranks = new char[words];
+        for (int rank=0; rank<words; rank++) ranks[byFrequency[rank]] = (char)rank;
+        return ranks;
+    }
+
+    /**
+     * @return the top k word numbers of each node of the completion tree described in Dawg,
+     * leaves from the blocks of words and each other node from its two children
+     */
+    private char[] completionTree(char[] ranks){
+        int leaves = Dawg.leaves(words);
+        char[] top = new char[2*leaves*k];
+        Arrays.fill(top, Dawg.NO_WORD);
+        for (int block=0; block*Dawg.BLOCK<words; block++)
+            for (int w=block*Dawg.BLOCK; w<Math.min(words, (block+1)*Dawg.BLOCK); w++)
+                offer(top, (leaves+block)*k, (char)w, ranks);
+        for (int node=leaves-1; node>=1; node--)
+            for (int child=2*node; child<=2*node+1; child++)
+                for (int i=child*k; i<(child+1)*k && top[i]!=Dawg.NO_WORD; i++)
+                    offer(top, node*k, top[i], ranks);
+        return top;
+    }
+
+    /**
+     * Add w to the k word numbers from top[at], kept most frequent first, if it is among the k
+     * most frequent
+     */
+    private void offer(char[] top, int at, char w, char[] ranks){
+        int end = at+k-1;
+        if (top[end]!=Dawg.NO_WORD && ranks[top[end]]<=ranks[w]) return;
+        int i = end;
+        while (i>at && (top[i-1]==Dawg.NO_WORD || ranks[top[i-1]]>ranks[w])){
+            top[i] = top[i-1];
+            i--;
+        }
+        top[i] = w;
+    }
+
+    /**
+     * @return the number of words after state, which is remembered in it and its descendants
+     */
+    private static int countBelow(State state){
+        if (state.below<0){
+            int below = 0;
+            for (int e=0; e<state.edges; e++)
+                below += (state.targets[e].word ? 1 : 0) + countBelow(state.targets[e]);
+            state.below = below;
+        }
+        return state.below;
+    }
+
+    public int wordCount(){
+        return words;
+    }
+
+    /**
+     * @return the number of different states so far - final once written
+     */
+    public int stateCount(){
+        return register.size()+1;
+    }
+
+    /**
+     * Size and lookup speed of the word list as a Dawg (in a direct buffer, as when memory mapped)
+     * and as a HashSet<String>
+     * @param wordList path of a word frequency list such as res/raw/wordlist.txt
+     */
+    public static String report(String wordList) throws IOException {
+        DawgBuilder builder = read(wordList, 3);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        builder.write(bytes);
+        int states = builder.stateCount(), size = bytes.size();
+        ByteBuffer mapped = ByteBuffer.allocateDirect(size);
+        mapped.put(bytes.toByteArray()).flip();
+        builder = null;
+        bytes = null;
+
+        Dawg dawg = Dawg.read(mapped); //only a few buffer objects on the heap
+        String[] words = new String[dawg.wordCount()];
+        for (int w=0; w<words.length; w++) words[w] = dawg.word(w);
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%d words, %d DAWG states, %d bytes on file%n", words.length, states, size));
+        report.append(String.format("%-10s %12s %12s %12s%n", "structure", "heap bytes", "mapped bytes", "ns/lookup"));
+        final Dawg d = dawg;
+        report.append(String.format("%-10s %12d %12d %12.0f%n", "Dawg", 0, size, nanosPerLookup(words, new WordSet() {
+            public boolean contains(String word) { return d.wordAt(d.find(word, 0, word.length()))>=0; }
+        })));
+
+        String[] copies = new String[words.length]; //as loaded from a file, not shared with words
+        long before = usedHeap();
+        final HashSet<String> set = new HashSet<>();
+        for (int i=0; i<words.length; i++) set.add(copies[i] = new String(words[i].toCharArray()));
+        long heap = usedHeap()-before;
+        report.append(String.format("%-10s %12d %12d %12.0f%n", "HashSet", heap, 0, nanosPerLookup(words, new WordSet() {
+            public boolean contains(String word) { return set.contains(word); }
+        })));
+        return report.toString();
+    }
+
+    private interface WordSet {
+        boolean contains(String word);
+    }
+
+    /**
+     * @return the mean time to look up each of words in the best of several passes, once warmed up
+     */
+    private static double nanosPerLookup(String[] words, WordSet set){
+        long best = Long.MAX_VALUE;
+        for (int pass=0; pass<20; pass++){
+            long start = System.nanoTime();
+            for (String word : words)
+                if (!set.contains(word)) throw new IllegalStateException("Lost "+word);
+            best = Math.min(best, System.nanoTime()-start);
+        }
+        return best/(double)words.length;
+    }
+
+    /**
+     * @return the heap in use once garbage collection has settled
+     */
+    private static long usedHeap(){
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i=0; i<10; i++){
+            System.gc();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                break;
+            }
+            long now = runtime.totalMemory()-runtime.freeMemory();
+            if (now>=used) break;
+            used = now;
+        }
+        return used;
+    }
+
+    static DawgBuilder read(String wordList, int k) throws IOException {
+        Reader in = new InputStreamReader(new FileInputStream(wordList), "UTF-8");
+        try {
+            return fromWordList(in, k);
+        } finally {
+            in.close();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length<1) {
+            System.err.println("Usage: DawgBuilder wordlist.txt [lexicon.dawg]");
+            System.exit(1);
+        }
+        if (args.length==1) {
+            System.out.print(report(args[0]));
+            return;
+        }
+        DawgBuilder builder = read(args[0], 3);
+        OutputStream out = new FileOutputStream(args[1]);
+        try {
+            builder.write(out);
+        } finally {
+            out.close();
+        }
+        System.out.printf("%d words in %d states%n", builder.wordCount(), builder.stateCount());
+    }
+}
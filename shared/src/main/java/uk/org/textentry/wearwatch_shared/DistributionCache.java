@@ -0,0 +1,191 @@
+package uk.org.textentry.wearwatch_shared;
+/**
+ * A bounded least-recently-used cache of smoothed next character distributions
+ *
+ * Used by the LanguageModel to avoid recomputing wittenBell for contexts that the word
+ * predictor keeps asking about (the same beam prefixes across taps and after backspace).
+ * Entries are keyed by trie node and held in one preallocated array with the LRU order kept
+ * as an index linked list, so lookups and insertions allocate nothing.
+ *
+ * The cache knows nothing about the model - the LanguageModel clears it whenever it learns.
+ *
+ *  Distributed under MIT License
+ *
+ *  Copyright (c) 2017 Mark Dunlop at University of Strathclyde (Scotland, UK, EU)
+ *  https://personal.cis.strath.ac.uk/mark.dunlop/research/
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE..
+ */
+public class DistributionCache {
+
+    public static final int WIDTH = 128;                     // one probability per 7-bit character
+    private static final int BYTES_PER_ENTRY = WIDTH*8 + 6*4; // values plus the index arrays
+    private static final int NONE = -1;
+
+    private final int capacity;
+    private final double[] values;
+    private final int[] keys, newer, older, chain;
+    private final int[] buckets;
+    private final int bucketShift;
+    private int size = 0, newest = NONE, oldest = NONE;
+    private long hits = 0, misses = 0;
+
+    /**
+     * @param maxEntries maximum number of distributions held, each about 1KB
+     */
+    public DistributionCache(int maxEntries){
+        if (maxEntries<1) throw new IllegalArgumentException("Cache must hold at least one entry");
+        capacity = maxEntries;
+        values = new double[capacity*WIDTH];
+        keys = new int[capacity];
+        newer = new int[capacity];
+        older = new int[capacity];
+        chain = new int[capacity];
+        int b = 1;
+        while (b<2*capacity) b<<=1;
+        buckets = new int[b];
+        bucketShift = 32-Integer.numberOfTrailingZeros(b);
+        clear();
+    }
+
+    /**
+     * @param maxBytes approximate heap the cache may use
+     * @return a cache holding as many entries as fit in maxBytes
+     */
+    public static DistributionCache withByteLimit(long maxBytes){
+        return new DistributionCache((int) Math.max(1, maxBytes/BYTES_PER_ENTRY));
+    }
+
+    /**
+     * Copy the cached distribution for key into out and mark it as most recently used
+     * @return true on a hit, false (leaving out untouched) on a miss
+     */
+    public boolean get(int key, double[] out){
+        int slot = find(key);
+        if (slot==NONE) {
+            misses++;
+            return false;
+        }
+        hits++;
+        System.arraycopy(values, slot*WIDTH, out, 0, WIDTH);
+        if (slot!=newest) {
+            unlink(slot);
+            linkNewest(slot);
+        }
+        return true;
+    }
+
+    /**
+     * Store a copy of distribution for key, evicting the least recently used entry if full
+     */
+    public void put(int key, double[] distribution){
+        int slot = find(key);
+        if (slot==NONE) {
+            if (size<capacity)
+                slot = size++;
+            else {
+                slot = oldest;
+                unlink(slot);
+                removeFromBucket(slot);
+            }
+            keys[slot] = key;
+            int b = bucketOf(key);
+            chain[slot] = buckets[b];
+            buckets[b] = slot;
+        } else
+            unlink(slot);
+        linkNewest(slot);
+        System.arraycopy(distribution, 0, values, slot*WIDTH, WIDTH);
+    }
+
+    /**
+     * Drop all entries - hit and miss counts are kept
+     */
+    public void clear(){
+        for (int i=0; i<buckets.length; i++) buckets[i] = NONE;
+        size = 0;
+        newest = oldest = NONE;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public int getCapacity(){
+        return capacity;
+    }
+
+    public long getHits(){
+        return hits;
+    }
+
+    public long getMisses(){
+        return misses;
+    }
+
+    public void resetCounters(){
+        hits = misses = 0;
+    }
+
+    public long sizeInBytes(){
+        return (long)capacity*BYTES_PER_ENTRY + 4L*buckets.length;
+    }
+
+    public String toString(){
+        long lookups = hits+misses;
+        return String.format("DistributionCache %d/%d entries, %d hits %d misses (%.1f%%)",
+                size, capacity, hits, misses, lookups==0 ? 0.0 : 100.0*hits/lookups);
+    }
+
+    private int bucketOf(int key){
+        return (key*0x9E3779B9) >>> bucketShift;
+    }
+
+    private int find(int key){
+        for (int slot=buckets[bucketOf(key)]; slot!=NONE; slot=chain[slot])
+            if (keys[slot]==key) return slot;
+        return NONE;
+    }
+
+    private void removeFromBucket(int slot){
+        int b = bucketOf(keys[slot]);
+        if (buckets[b]==slot) {
+            buckets[b] = chain[slot];
+            return;
+        }
+        for (int s=buckets[b]; s!=NONE; s=chain[s])
+            if (chain[s]==slot) {
+                chain[s] = chain[slot];
+                return;
+            }
+    }
+
+    private void unlink(int slot){
+        if (newer[slot]!=NONE) older[newer[slot]] = older[slot]; else newest = older[slot];
+        if (older[slot]!=NONE) newer[older[slot]] = newer[slot]; else oldest = newer[slot];
+    }
+
+    private void linkNewest(int slot){
+        newer[slot] = NONE;
+        older[slot] = newest;
+        if (newest!=NONE) newer[newest] = slot;
+        newest = slot;
+        if (oldest==NONE) oldest = slot;
+    }
+}
@@ -0,0 +1,223 @@
+package uk.org.textentry.wearwatch_shared;
+/**
+ * Short email phrases from the Enron mobile email set, used to check how well the keyboard
+ * decodes and how well a language model predicts (WordPredictor.testEnronPhrases,
+ * LanguageModelReducer). Plain Java so the build tools can use them too.
+ *
+ *  Distributed under MIT License
+ *
+ *  Copyright (c) 2017 Mark Dunlop at University of Strathclyde (Scotland, UK, EU)
+ *  https://personal.cis.strath.ac.uk/mark.dunlop/research/
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE..
+ */
+public class EnronTestPhrases {
+
+    public static final String[] PHRASES = {
+            "you're the greatest",
+            "i'm on a plane",
+            "i don't have the distraction of taking care of mimi",
+            "i'm going to class",
+            "i'll call you in the morning",
+            "i'm in stan's office",
+            "don't forget the wood",
+            "i'm still here",
+            "we're on the way",
+            "what's his problem",
+            "a gift isn't necessary",
+            "i'm waiting until she comes home",
+            "i'm not planning on doing anything this week",
+            "don't they have some conflicts here",
+            "don't make me pull tapes on whether you understood our fee",
+            "we don't seem to have any positive income there",
+            "what's your proposal",
+            "disney was great and i've been to eight baseball games",
+            "i'm glad you liked it",
+            "i've never worked with her",
+            "i'm glad she likes her tree",
+            "it's not looking too good is it",
+            "i'll get you one",
+            "what's going on",
+            "what's your phone number",
+            "i'll catch up with you tomorrow",
+            "you have a nice holiday too",
+            "we need to talk about this month",
+            "what about jay",
+            "we are waiting on the cold front",
+            "ken agreed yesterday",
+            "neil has been asking around",
+            "are you available",
+            "that would likely be an expensive option",
+            "good for you",
+            "we will keep you posted",
+            "do we have anyone in portland",
+            "no surprise there",
+            "hope you guys are doing fine",
+            "are you going to call",
+            "did that happen",
+            "i would be glad to participate",
+            "i worked on the grade level promotion",
+            "i have a request",
+            "what is this",
+            "travis is in charge",
+            "can you handle",
+            "their key decision maker did not show which is not a good sign",
+            "can you help get this cleared up",
+            "i have a high level in my office",
+            "thanks i will",
+            "are you being a baby",
+            "did you get this",
+            "florida is great",
+            "i sent it to her",
+            "i will call",
+            "please let me know if you learn anything at the floor meeting",
+            "please revise accordingly",
+            "could you see where this stands",
+            "see you on the third",
+            "did we get ours back",
+            "what is up with ene",
+            "are you sure",
+            "sorry about that",
+            "is that ok",
+            "jan has a lot of detail",
+            "need to watch closely",
+            "what do you think",
+            "i should have more info by our meeting this afternoon",
+            "are you there",
+            "i can review afterwards and get back to you tonight",
+            "i hope he is having a fantastic time",
+            "can you resend me the doyle email from last week",
+            "if so what was it",
+            "this seems fine to me",
+            "what a pain",
+            "pressure to finish my review",
+            "i like it",
+            "will it be delivered",
+            "was wondering if you and natalie connected",
+            "not at this time",
+            "we will get you a copy",
+            "i will follow up with him as soon as the dust settles",
+            "or are you going to be tied up with dinner",
+            "is this the only time available",
+            "no there will be plenty of others",
+            "what is the purpose of this",
+            "no can do",
+            "nice weather for it",
+            "i think those are the right dates",
+            "thai sounds good",
+            "do you want to fax it to my hotel",
+            "did you differ from me",
+            "are you going to join us for lunch",
+            "is she done yet",
+            "thanks for the quick turnaround",
+            "how are you",
+            "please call tomorrow if possible",
+            "we are all fragile",
+            "i would like to attend if so",
+            "i can return earlier",
+            "i am trying again",
+            "i will bring john brindle",
+            "he would love anything about rocks",
+            "what do you hear",
+            "hope your trip to florida was good",
+            "she called and wants to come over this am",
+            "see you soon",
+            "it reads like she is in",
+            "has dynegy made a specific request",
+            "i am walking in now",
+            "they have capacity now",
+            "tell her to get my expense report done",
+            "i am out of town on business tonight",
+            "not even close",
+            "chris foster is in",
+            "they are more efficiently pooled",
+            "could you try ringing her",
+            "do you need it today",
+            "keep me posted",
+            "john this message concerns me",
+            "call me to give me a heads up",
+            "and leave my school alone",
+            "what is in the plan",
+            "where do you want to meet to walk over there",
+            "i am almost speechless",
+            "suggest you get facts before judging anyone",
+            "we just need a sitter",
+            "we must be consistent",
+            "she has absolutely everything",
+            "this is good i think",
+            "we can have wine and catch up",
+            "money wise that is",
+            "what is wrong",
+            "where are you",
+            "thanks good job",
+            "hopefully this can wait until monday",
+            "no employment claims for gas or power",
+            "why do you ask",
+            "i agree since i am at the bank right now",
+            "i was planning to attend",
+            "that would be great",
+            "thank you for your prompt reply",
+            "can you help me here",
+            "i changed that in one prior draft",
+            "what is the cost issue",
+            "please send me an email",
+            "what a jerk",
+            "i wanted to go drinking with you",
+            "no material impact",
+            "i will be back friday",
+            "if not can i call you",
+            "do you still need me to sign something",
+            "both of us are still here",
+            "not even in yet",
+            "how soon do you need it",
+            "what number should he call you on",
+            "are you feeling better",
+            "have i mentioned how much i love houston traffic",
+            "take what you can get",
+            "should systems manage the migration",
+            "i think that is the right answer",
+            "this looks fine",
+            "get with mary for format",
+            "i hope you are feeling better",
+            "are you getting all the information you need",
+            "have a great trip",
+            "did you talk to ava this morning",
+            "can you help",
+            "has anyone else heard anything",
+            "is it over",
+            "ok with me",
+            "you can talk to becky",
+            "i talked to duran",
+            "i agreed terms with greg",
+            "i am at the lake",
+            "i told you silly",
+            "wednesday is definitely a hot chocolate day",
+            "thanks for your concern",
+            "thursday works better for me",
+            "what is the mood",
+            "i am on my way",
+            "do we need to discuss",
+            "just playing with you",
+            "thanks for checking with me",
+            "this is very sensitive",
+            "can we have them until we move",
+            "are you in today",
+            "let it rip"
+    };
+}
@@ -0,0 +1,357 @@
+package uk.org.textentry.wearwatch_shared;
+/**
+ * A compact read-only copy of a CharTrie, for a LanguageModel that has finished learning
+ *
+ * Rather than a slot for every symbol of the alphabet, each node only stores the symbols it
+ * has: its children and its next symbol counts are each kept contiguously, sorted by symbol,
+ * in shared arrays (compressed sparse rows). Each node has one long per array holding the start
+ * offset of its entries and a bit mask of the symbols it has, so any one entry is found with a
+ * single load and bit count rather than a search. The Witten Bell weights of each node are
+ * worked out once when the trie is built so interpolating only touches the symbols that have
+ * been seen.
+ *
+ * Nodes keep the numbers they had in the CharTrie, so ContextStates and the file format are the
+ * same for both. Counts read from a file quantised to 8 or 16 bits stay as those codes in
+ * memory and are decoded by the CountQuantiser as they are looked up. All fields are final and never change, so one instance can be shared by any
+ * number of threads without locking.
+ *
+ *  Distributed under MIT License
+ *
+ *  Copyright (c) 2017 Mark Dunlop at University of Strathclyde (Scotland, UK, EU)
+ *  https://personal.cis.strath.ac.uk/mark.dunlop/research/
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE..
+ */
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class FrozenCharTrie implements ContextTrie {
+
+    private static final int ALPHABET_SIZE = CharTrie.ALPHABET_SIZE;
+    private static final int ROOT = CharTrie.ROOT;
+
+    private final int nodeCount;
+    private final int[] suffix;
+    private final byte[] depth;
+    // node n's children are childNodes[start ... start+bitCount(mask)) in symbol order, where
+    // childIndex[n] is start<<32 | mask and mask has bit s set if there is a child for symbol s
+    private final long[] childIndex;
+    private final int[] childNodes;
+    // node n's non-zero counts are indexed in the same way, see countAt
+    private final long[] countIndex;
+    private final byte[] countSymbols;
+    private final int[] countValues;      // the counts, null if quantised
+    private final byte[] countBytes;      // 8 bit codes of the counts if quantised to 8 bits, otherwise null
+    private final short[] countShorts;    // 16 bit codes of the counts if quantised to 16 bits, otherwise null
+    private final CountQuantiser quantiser; // decodes countBytes or countShorts, null if not quantised
+    // precomputed from the counts
+    private final int[] totals;
+    private final double[] lambda;         // Witten Bell weight of the node's own counts
+    private final double[] inverseTotal;   // 1/total, 0 for nodes without counts
+
+    /**
+     * Copy the contexts and counts of a trie
+     */
+    public FrozenCharTrie(CharTrie trie){
+        this(trie, trie.size(), starts(trie, trie.size(), true), starts(trie, trie.size(), false));
+    }
+
+    private FrozenCharTrie(CharTrie trie, int nodes, int[] childStart, int[] countStart){
+        this(nodes, trie.suffix, trie.depth,
+                childStart, new byte[childStart[nodes]], new int[childStart[nodes]],
+                countStart, new byte[countStart[nodes]], new int[countStart[nodes]], null, null, null, trie);
+    }
+
+    /**
+     * @param countValues the counts, or null if given as countBytes or countShorts codes
+     * @param quantiser decodes countBytes or countShorts, null if countValues is given
+     * @param from if not null, the trie to fill the (empty) symbol and value arrays from
+     */
+    private FrozenCharTrie(int nodeCount, int[] suffix, byte[] depth,
+                           int[] childStart, byte[] childSymbols, int[] childNodes,
+                           int[] countStart, byte[] countSymbols, int[] countValues,
+                           byte[] countBytes, short[] countShorts, CountQuantiser quantiser, CharTrie from){
+        if (from!=null)
+            for (int node=0; node<nodeCount; node++)
+                for (int symbol=0, c=childStart[node], v=countStart[node]; symbol<ALPHABET_SIZE; symbol++){
+                    int child = from.child(node, symbol), count = from.count(node, symbol);
+                    if (child>=0) {
+                        childSymbols[c] = (byte)symbol;
+                        childNodes[c++] = child;
+                    }
+                    if (count!=0) {
+                        countSymbols[v] = (byte)symbol;
+                        countValues[v++] = count;
+                    }
+                }
+        this.nodeCount = nodeCount;
+        this.suffix = suffix.length==nodeCount ? suffix : Arrays.copyOf(suffix, nodeCount);
+        this.depth = depth.length==nodeCount ? depth : Arrays.copyOf(depth, nodeCount);
+        this.childNodes = childNodes;
+        this.countSymbols = countSymbols;
+        this.countValues = countValues;
+        this.countBytes = countBytes;
+        this.countShorts = countShorts;
+        this.quantiser = quantiser;
+        childIndex = index(childStart, childSymbols, nodeCount);
+        countIndex = index(countStart, countSymbols, nodeCount);
+
+        totals = new int[nodeCount];
+        lambda = new double[nodeCount];
+        inverseTotal = new double[nodeCount];
+        for (int node=0; node<nodeCount; node++){
+            for (int e=countStart[node]; e<countStart[node+1]; e++)
+                totals[node] += countAt(e);
+            double cS = totals[node];
+            if (cS==0) continue;
+            double uS = countStart[node+1]-countStart[node];
+            lambda[node] = 1-(uS/(uS+cS));
+            inverseTotal[node] = 1.0/cS;
+        }
+    }
+
+    private static long[] index(int[] start, byte[] symbols, int nodes){
+        long[] index = new long[nodes];
+        for (int node=0; node<nodes; node++){
+            int mask = 0;
+            for (int e=start[node]; e<start[node+1]; e++)
+                mask |= 1<<symbols[e];
+            index[node] = (long)start[node]<<32 | mask;
+        }
+        return index;
+    }
+
+    private static int start(long index){
+        return (int)(index>>>32);
+    }
+
+    private static int entries(long index){
+        return Integer.bitCount((int)index);
+    }
+
+    /**
+     * @return the array position of symbol's entry or -1 if there is none
+     */
+    private static int find(long index, int symbol){
+        int mask = (int)index;
+        if ((mask & (1<<symbol)) == 0) return -1;
+        return start(index) + Integer.bitCount(mask & ((1<<symbol)-1));
+    }
+
+    /**
+     * @return where each node's children (or counts) start in the compressed arrays, with the
+     * total at the end
+     */
+    private static int[] starts(CharTrie trie, int nodes, boolean children){
+        int[] start = new int[nodes+1];
+        for (int node=0; node<nodes; node++){
+            int n = 0;
+            for (int symbol=0; symbol<ALPHABET_SIZE; symbol++)
+                if (children ? trie.child(node, symbol)>=0 : trie.count(node, symbol)!=0) n++;
+            start[node+1] = start[node]+n;
+        }
+        return start;
+    }
+
+    public int next(int node, int symbol){
+        if (symbol<0) return ROOT;
+        while (true){
+            int c = childOrZero(node, symbol);
+            if (c!=0) return c;
+            if (node==ROOT) return ROOT;
+            node = suffix[node];
+        }
+    }
+
+    private int childOrZero(int node, int symbol){
+        int e = find(childIndex[node], symbol);
+        return e<0 ? 0 : childNodes[e];
+    }
+
+    public int suffix(int node){
+        return suffix[node];
+    }
+
+    public int depth(int node){
+        return depth[node];
+    }
+
+    public int find(CharSequence s, int start, int end){
+        int node = ROOT;
+        for (int i=start; i<end && node>=0; i++)
+            node = child(node, CharTrie.symbolOf(s.charAt(i)));
+        return node;
+    }
+
+    public int child(int node, int symbol){
+        if (symbol<0) return -1;
+        int c = childOrZero(node, symbol);
+        return c==0 ? -1 : c;
+    }
+
+    public int count(int node, int symbol){
+        int e = find(countIndex[node], symbol);
+        return e<0 ? 0 : countAt(e);
+    }
+
+    /**
+     * @return the count of entry e of the count arrays
+     */
+    private int countAt(int e){
+        if (countValues!=null) return countValues[e];
+        return quantiser.decode(countBytes!=null ? countBytes[e]&0xFF : countShorts[e]&0xFFFF);
+    }
+
+    public int total(int node){
+        return totals[node];
+    }
+
+    public int distinct(int node){
+        return entries(countIndex[node]);
+    }
+
+    public void getAll(int node, double[] out){
+        for (int i=0; i<ALPHABET_SIZE; i++)
+            out[CharTrie.charOf(i)] = 0;
+        for (int e=start(countIndex[node]), end=e+entries(countIndex[node]); e<end; e++)
+            out[CharTrie.charOf(countSymbols[e])] = countAt(e);
+    }
+
+    public void interpolate(int node, double[] out){
+        if (totals[node]==0) return;
+        double lambda = this.lambda[node], inverse = inverseTotal[node];
+        for (int i=0; i<128; i++)
+            out[i] = (1.0-lambda)*out[i];
+        for (int e=start(countIndex[node]), end=e+entries(countIndex[node]); e<end; e++){
+            char c = CharTrie.charOf(countSymbols[e]);
+            out[c] = lambda*(inverse*countAt(e)) + out[c];
+        }
+    }
+
+    public int size(){
+        return nodeCount;
+    }
+
+    public long sizeInBytes(){
+        long counts = countValues!=null ? 4L*countValues.length : countBytes!=null ? countBytes.length : 2L*countShorts.length;
+        return 4L*(suffix.length+childNodes.length+totals.length) + counts
+                + 8L*(childIndex.length+countIndex.length)
+                + depth.length + countSymbols.length
+                + 8L*(lambda.length+inverseTotal.length);
+    }
+
+    public void write(DataOutput out, CountQuantiser quantiser) throws IOException {
+        out.writeInt(nodeCount);
+        for (int node=0; node<nodeCount; node++) out.writeInt(suffix[node]);
+        out.write(depth, 0, nodeCount);
+        writeSparse(out, childIndex, childNodes.length);
+        for (int child : childNodes) out.writeInt(child);
+        writeSparse(out, countIndex, countSymbols.length);
+        for (int e=0; e<countSymbols.length; e++)
+            if (quantiser==null) out.writeInt(countAt(e)); else quantiser.writeCount(out, countAt(e));
+    }
+
+    /**
+     * Write the entry counts and symbols of each node, which come before the values
+     */
+    private void writeSparse(DataOutput out, long[] index, int entries) throws IOException {
+        for (int node=0; node<nodeCount; node++)
+            out.writeByte(entries(index[node]));
+        out.writeInt(entries);
+        for (int node=0; node<nodeCount; node++)
+            for (int symbol=0; symbol<ALPHABET_SIZE; symbol++)
+                if (find(index[node], symbol)>=0) out.writeByte(symbol);
+    }
+
+    /**
+     * Read a trie written by CharTrie.write (or write) straight into the frozen layout, which the
+     * file already matches, so nothing is expanded to a slot per symbol. Quantised counts are kept
+     * as their codes.
+     * @param quantiser how the counts were written, null for 32 bit ints
+     */
+    static FrozenCharTrie read(ByteBuffer in, CountQuantiser quantiser) throws IOException {
+        int n = in.getInt();
+        if (n<1 || n>in.remaining()/5) throw new IOException("Corrupt language model - "+n+" nodes"); //5 bytes a node for suffix and depth
+        int[] suffix = new int[n];
+        in.asIntBuffer().get(suffix);
+        in.position(in.position()+4*n);
+        CharTrie.checkSuffixes(suffix, n);
+        byte[] depth = new byte[n];
+        in.get(depth);
+        int[] childStart = readStarts(in, n);
+        byte[] childSymbols = readSymbols(in, childStart, n);
+        int[] childNodes = readInts(in, childStart[n]);
+        for (int node=0; node<n; node++)
+            for (int e=childStart[node]; e<childStart[node+1]; e++)
+                if (childNodes[e]<=node || childNodes[e]>=n)
+                    throw new IOException("Corrupt language model - child "+childNodes[e]+" of node "+node);
+        int[] countStart = readStarts(in, n);
+        byte[] countSymbols = readSymbols(in, countStart, n);
+        int counts = countStart[n];
+        int[] countValues = quantiser==null ? readInts(in, counts) : null;
+        byte[] countBytes = quantiser!=null && quantiser.getBits()==8 ? readBytes(in, counts) : null;
+        short[] countShorts = quantiser!=null && quantiser.getBits()==16 ? readShorts(in, counts) : null;
+        return new FrozenCharTrie(n, suffix, depth, childStart, childSymbols, childNodes,
+                countStart, countSymbols, countValues, countBytes, countShorts, quantiser, null);
+    }
+
+    private static int[] readStarts(ByteBuffer in, int nodes) throws IOException {
+        byte[] sizes = new byte[nodes];
+        in.get(sizes);
+        int[] start = new int[nodes+1];
+        for (int node=0; node<nodes; node++) {
+            if (sizes[node]<0) throw new IOException("Corrupt language model - negative entry count");
+            start[node+1] = start[node]+sizes[node];
+        }
+        if (in.getInt() != start[nodes])
+            throw new IOException("Corrupt language model - entry counts don't match");
+        if (start[nodes]>in.remaining())
+            throw new IOException("Corrupt language model - more entries than the file holds");
+        return start;
+    }
+
+    private static byte[] readSymbols(ByteBuffer in, int[] start, int nodes) throws IOException {
+        byte[] symbols = readBytes(in, start[nodes]);
+        for (int node=0; node<nodes; node++)
+            CharTrie.checkSymbols(symbols, start[node], start[node+1]);
+        return symbols;
+    }
+
+    private static byte[] readBytes(ByteBuffer in, int n){
+        byte[] bytes = new byte[n];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static short[] readShorts(ByteBuffer in, int n){
+        short[] shorts = new short[n];
+        in.asShortBuffer().get(shorts);
+        in.position(in.position()+2*n);
+        return shorts;
+    }
+
+    private static int[] readInts(ByteBuffer in, int n){
+        int[] ints = new int[n];
+        in.asIntBuffer().get(ints);
+        in.position(in.position()+4*n);
+        return ints;
+    }
+}
@@ -32,56 +32,462 @@ package uk.org.textentry.wearwatch_shared;
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
  * SOFTWARE..
  */
-import android.util.Log;
-
-import java.util.HashMap;
-import java.util.Map;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 public class LanguageModel {
 
+    static final int MAX_CONTEXT = 7; //longest context used to predict the next character
+
+    static final int FILE_MAGIC = 0x574B4C4D; //"WKLM"
+    static final int FILE_VERSION = 1;
+    static final int QUANTISED_FILE_VERSION = 2; // as version 1 but with 8 or 16 bit counts, see CountQuantiser
+
     double[] unigrams = new double[128];
     double unigramTotal = 0;
-    NGram ngram=new NGram();
+    ContextTrie ngram = new CharTrie();   // a FrozenCharTrie once frozen
+
+    private DistributionCache cache = null;
+    private double[] unigramProbabilities = null; // worked out once the model is frozen
+    // optional, see precomputeDistributions: node n's probability of symbol s is distributions[n*ALPHABET_SIZE+s]
+    // and of a character outside the alphabet is residuals[n] times its unigram probability
+    private float[] distributions = null;
+    private float[] residuals = null;
+    private ContextIndex index = null;    // optional, see indexContexts
+
+    private static final int SPACE = CharTrie.symbolOf(' ');
 
     public LanguageModel(){
     }
 
+    /**
+     * A read-only copy of this model for use once learning has finished
+     *
+     * The copy holds the same counts in a compact FrozenCharTrie with the Witten Bell weights
+     * precomputed, so it is smaller and faster to query, and gives exactly the same probabilities.
+     * It cannot learn (learn and merge throw IllegalStateException) and, as long as no cache is
+     * set on it, can be shared between threads without locking. This model is not changed.
+     * @return the frozen copy, or this model if it is already frozen
+     */
+    public LanguageModel freeze(){
+        if (isFrozen()) return this;
+        LanguageModel frozen = new LanguageModel();
+        frozen.unigrams = unigrams.clone();
+        frozen.unigramTotal = unigramTotal;
+        frozen.ngram = new FrozenCharTrie((CharTrie) ngram);
+        frozen.precomputeUnigrams();
+        return frozen;
+    }
+
+    public boolean isFrozen(){
+        return ngram instanceof FrozenCharTrie;
+    }
+
+    private void precomputeUnigrams(){
+        double[] probabilities = new double[128];
+        mix(CharTrie.ROOT, probabilities);
+        unigramProbabilities = probabilities;
+    }
+
+    /**
+     * Work out the final wittenBell distribution of every context in the model now, so a query
+     * just copies one row rather than interpolating through every suffix
+     *
+     * Takes 4 bytes per alphabet character per context (about 2MB for the shipped model, on top
+     * of the frozen model itself) and is stored as floats, so probabilities can differ from
+     * interpolating on the fly in the 7th significant figure. Any cache is no longer used.
+     * @throws IllegalStateException if the model is not frozen, as learning would invalidate it
+     */
+    public void precomputeDistributions(){
+        if (!isFrozen()) throw new IllegalStateException("Only a frozen language model can be precomputed");
+        if (distributions!=null) return;
+        int nodes = ngram.size(), width = CharTrie.ALPHABET_SIZE;
+        // built as doubles, exactly as mix would, then rounded - each node's suffix comes before it
+        double[] rows = new double[nodes*width];
+        double[] residual = new double[nodes];
+        double[] out = new double[128];
+        for (int node=0; node<nodes; node++){
+            if (node==CharTrie.ROOT){
+                mix(node, out);
+                residual[node] = 1;
+            } else {
+                int suffix = ngram.suffix(node);
+                for (int i=0; i<width; i++)
+                    out[CharTrie.charOf(i)] = rows[suffix*width+i];
+                ngram.interpolate(node, out);
+                double cS = ngram.total(node), uS = ngram.distinct(node);
+                residual[node] = cS==0 ? residual[suffix] : (uS/(uS+cS))*residual[suffix];
+            }
+            for (int i=0; i<width; i++)
+                rows[node*width+i] = out[CharTrie.charOf(i)];
+        }
+        float[] distributions = new float[nodes*width];
+        for (int i=0; i<distributions.length; i++)
+            distributions[i] = (float) rows[i];
+        float[] residuals = new float[nodes];
+        for (int node=0; node<nodes; node++)
+            residuals[node] = (float) residual[node];
+        this.residuals = residuals;
+        this.distributions = distributions;
+    }
+
+    public boolean isPrecomputed(){
+        return distributions!=null;
+    }
+
+    /**
+     * Build a ContextIndex so a context given as text is found by hashing its packed code
+     * rather than walking the trie one character at a time - speeds up probBeforeSpaceFloored
+     * and the wittenBell calls that take a string, for 12 bytes per slot of the hash table
+     * (about 0.4MB for the shipped model)
+     * @throws IllegalStateException if the model is not frozen, as learning would invalidate it
+     */
+    public void indexContexts(){
+        if (!isFrozen()) throw new IllegalStateException("Only a frozen language model can be indexed");
+        if (index==null) index = new ContextIndex(ngram);
+    }
+
+    public boolean isIndexed(){
+        return index!=null;
+    }
+
+    /**
+     * @return approximate heap used by the model in bytes
+     */
+    public long sizeInBytes(){
+        long bytes = 8L*unigrams.length + ngram.sizeInBytes();
+        if (unigramProbabilities!=null) bytes += 8L*unigramProbabilities.length;
+        if (distributions!=null) bytes += 4L*(distributions.length+residuals.length);
+        if (index!=null) bytes += index.sizeInBytes();
+        return bytes;
+    }
+
+    /**
+     * @return the trie to learn into
+     * @throws IllegalStateException if the model has been frozen
+     */
+    private CharTrie learningTrie(){
+        if (isFrozen()) throw new IllegalStateException("A frozen language model cannot learn");
+        return (CharTrie) ngram;
+    }
+
+    /**
+     * Turn on caching of wittenBell distributions, dropping any existing cache
+     * @param cache the cache to use (e.g. new DistributionCache(256)) or null to turn caching off
+     */
+    public void setCache(DistributionCache cache){
+        this.cache = cache;
+    }
+
+    /**
+     * @return the cache in use (for hit/miss counts) or null if caching is off
+     */
+    public DistributionCache getCache(){
+        return cache;
+    }
+
     /**
      * Learn the given sentance in the language model - assumes a full sentance and not, say, individual words
      * @param sentance a sentance in lowercase without punctuation
      */
-    public void learn(String sentance){
-        String s = " "+filter(sentance)+" ";
-        for (int i=0; i<s.length(); i++){
-            char c = s.charAt(i);
-            if (c>128) Log.e("MDD", "Error character "+c);
-            unigrams[c]++;
-            unigramTotal++;
-            for (int j=Math.max(0,i-7); j<i; j++)
-                ngram.learn(s.substring(j,i),c);
-        }
-    }
-
-    /**
-     * Filter the given string to skip all non word characters
-     * Word characters currently defined as abcdefghijklmnopqrstuvwxyz-'
-     * @param s the original string with possible invalid characters
-     * @return the new string with only valid characters
-     */
-    private String filter(String s){
-        StringBuilder sb = new StringBuilder(s);
-        boolean prevWasSpace = true;
-        for (int i=0; i<s.length(); i++){
-            char c = s.charAt(i);
-            if ( (Character.isAlphabetic(c)) || (c=='\'') || (c=='-') ){
-                sb.append(Character.toLowerCase(c));
-                prevWasSpace = false;
-            } else if (!prevWasSpace) {
-                sb.append(' ');
-                prevWasSpace = true;
+    public void learn(CharSequence sentance){
+        learn(sentance, 1);
+    }
+
+    /**
+     * Learn the given sentance as if learn(sentance) had been called count times but in one pass
+     * @param sentance a sentance in lowercase without punctuation
+     * @param count the number of times the sentance was seen, e.g. from a word frequency list
+     */
+    public void learn(CharSequence sentance, int count){
+        if (count<0) throw new IllegalArgumentException("Negative count "+count+" for "+sentance);
+        if (count==0) return;
+        if (cache!=null) cache.clear();
+        Trainer trainer = new Trainer(count);
+        for (int i=0; i<sentance.length(); i++)
+            trainer.accept(sentance.charAt(i));
+        trainer.end();
+    }
+
+    /**
+     * Learn a corpus with one sentance per line, reading it as it goes so the corpus never has
+     * to be held in memory. Blank lines and lines starting with # are skipped.
+     * @param in the corpus - read to the end but not closed
+     * @return the number of sentances learned
+     */
+    public int learn(Reader in) throws IOException {
+        learningTrie();
+        if (cache!=null) cache.clear();
+        char[] buffer = new char[8192];
+        Trainer trainer = null;
+        boolean lineStart = true, comment = false;
+        int sentances = 0;
+        for (int n; (n = in.read(buffer)) > 0; ){
+            for (int i=0; i<n; i++){
+                char c = buffer[i];
+                if (c=='\n' || c=='\r'){
+                    if (trainer!=null){
+                        trainer.end();
+                        trainer = null;
+                        sentances++;
+                    }
+                    lineStart = true;
+                    comment = false;
+                    continue;
+                }
+                if (lineStart && c=='#') comment = true;
+                lineStart = false;
+                if (comment) continue;
+                if (trainer==null){
+                    if (c<=' ') continue; // not yet known if the line is blank
+                    trainer = new Trainer(1);
+                }
+                trainer.accept(c);
+            }
+        }
+        if (trainer!=null){
+            trainer.end();
+            sentances++;
+        }
+        return sentances;
+    }
+
+    /**
+     * Learn a frequency list such as res/raw/wordlist.txt ("0316288 the") or wordbigrams.txt
+     * ("of\tthe\t1000"), one entry per line
+     *
+     * Tokens are separated by spaces or tabs. The count is the first token if it is all digits,
+     * otherwise the last; the other tokens joined by spaces are the phrase, which is learned with
+     * learn(phrase, count). Lines without both a count and a phrase are skipped.
+     * @param in the list - read to the end but not closed
+     * @return the number of entries learned
+     */
+    public int learnCounts(Reader in) throws IOException {
+        BufferedReader lines = new BufferedReader(in);
+        int entries = 0;
+        for (String line; (line = lines.readLine()) != null; )
+            if (learnCount(line)) entries++;
+        return entries;
+    }
+
+    /**
+     * Learn one line of a frequency list as described in learnCounts
+     * @return false if the line was skipped
+     */
+    boolean learnCount(String line){
+        String[] tokens = line.trim().split("[ \t]+");
+        if (tokens.length<2) return false;
+        int countAt = isDigits(tokens[0]) ? 0 : tokens.length-1;
+        if (!isDigits(tokens[countAt])) return false;
+        StringBuilder phrase = new StringBuilder();
+        for (int i=0; i<tokens.length; i++){
+            if (i==countAt) continue;
+            if (phrase.length()>0) phrase.append(' ');
+            phrase.append(tokens[i]);
+        }
+        learn(phrase, Integer.parseInt(tokens[countAt]));
+        return true;
+    }
+
+    /**
+     * Add everything another model has learned to this one
+     *
+     * Merging the models of consecutive pieces of a corpus, in order, gives exactly the model
+     * (down to the bytes written) that learning the whole corpus would - see CharTrie.merge
+     * @param other the model to add, which is not changed
+     */
+    public void merge(LanguageModel other){
+        CharTrie trie = learningTrie();
+        if (other.isFrozen()) throw new IllegalStateException("Only models that can still learn can be merged");
+        if (cache!=null) cache.clear();
+        for (int i=0; i<128; i++)
+            unigrams[i] += other.unigrams[i];
+        unigramTotal += other.unigramTotal;
+        trie.merge((CharTrie) other.ngram);
+    }
+
+    private static boolean isDigits(String s){
+        if (s.length()==0 || s.length()>9) return false; // longer could overflow an int
+        for (int i=0; i<s.length(); i++)
+            if (s.charAt(i)<'0' || s.charAt(i)>'9') return false;
+        return true;
+    }
+
+    /**
+     * Save the model in the binary language model format (see read)
+     * @param os stream to write to - flushed but not closed
+     */
+    public void write(OutputStream os) throws IOException {
+        write(os, 32);
+    }
+
+    /**
+     * Save the model with its n-gram counts rounded to fit in fewer bits (see CountQuantiser) -
+     * shrinks the counts to a quarter or half of their space in the file for a small loss of
+     * accuracy. Unigram counts are kept exactly.
+     * @param os stream to write to - flushed but not closed
+     * @param countBits 8, 16 or 32 (as write(os), no rounding)
+     */
+    public void write(OutputStream os, int countBits) throws IOException {
+        CountQuantiser quantiser = countBits==32 ? null : new CountQuantiser(countBits, maxCount());
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(quantiser==null ? FILE_VERSION : QUANTISED_FILE_VERSION);
+        out.writeInt(CharTrie.ALPHABET_SIZE);
+        out.writeInt(MAX_CONTEXT);
+        for (int i=0; i<128; i++)
+            out.writeDouble(unigrams[i]);
+        if (quantiser!=null) quantiser.write(out);
+        ngram.write(out, quantiser);
+        out.flush();
+    }
+
+    private int maxCount(){
+        int max = 1;
+        for (int node=0; node<ngram.size(); node++)
+            for (int symbol=0; symbol<CharTrie.ALPHABET_SIZE; symbol++)
+                max = Math.max(max, ngram.count(node, symbol));
+        return max;
+    }
+
+    /**
+     * Load a model saved by write - much faster than training it again
+     *
+     * Format (big endian): magic "WKLM", version, alphabet size, max context, 128 unigram counts
+     * as doubles, then the CharTrie nodes. Version 2 files have the CountQuantiser settings
+     * before the nodes and hold each count as an 8 or 16 bit code.
+     * @param in buffer positioned at the start of the model, typically memory mapped
+     * @return the model, which can still learn more
+     * @throws IOException if the buffer does not hold a model of this version
+     */
+    public static LanguageModel read(ByteBuffer in) throws IOException {
+        return read(in, false);
+    }
+
+    /**
+     * Load a model saved by write straight into frozen form - as read(in).freeze() but quicker
+     * and without building the learnable model first
+     * @param in buffer positioned at the start of the model, typically memory mapped
+     * @throws IOException if the buffer does not hold a model of this version
+     */
+    public static LanguageModel readFrozen(ByteBuffer in) throws IOException {
+        return read(in, true);
+    }
+
+    private static LanguageModel read(ByteBuffer in, boolean frozen) throws IOException {
+        try {
+            if (in.getInt() != FILE_MAGIC)
+                throw new IOException("Not a language model file");
+            int version = in.getInt();
+            if (version != FILE_VERSION && version != QUANTISED_FILE_VERSION)
+                throw new IOException("Unsupported language model version "+version);
+            if (in.getInt() != CharTrie.ALPHABET_SIZE || in.getInt() != MAX_CONTEXT)
+                throw new IOException("Language model built for a different alphabet or context length");
+
+            LanguageModel lm = new LanguageModel();
+            for (int i=0; i<128; i++){
+                lm.unigrams[i] = in.getDouble();
+                lm.unigramTotal += lm.unigrams[i];
+            }
+            CountQuantiser quantiser = version==QUANTISED_FILE_VERSION ? CountQuantiser.read(in) : null;
+            if (frozen) {
+                lm.ngram = FrozenCharTrie.read(in, quantiser);
+                lm.precomputeUnigrams();
+            } else
+                lm.ngram = CharTrie.read(in, quantiser);
+            return lm;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Language model file is truncated");
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Language model file is corrupt");
+        }
+    }
+
+    /**
+     * Memory map and read a model file saved by write
+     */
+    public static LanguageModel load(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Learns one sentance a character at a time, keeping the trie nodes of the contexts that end
+     * just before the latest character so each context is extended by one step rather than being
+     * looked up from the root for every position and length.
+     *
+     * Also filters as it goes: word characters (letters, dash and apostrophe) are lowercased,
+     * any run of other characters becomes a single space and the sentance is wrapped in spaces,
+     * so "Hello, world!" is learned as " hello world ".
+     */
+    private final class Trainer {
+        private final int count;
+        private final CharTrie trie = learningTrie();
+        // contexts[n] is the node of the n characters before the previous one, -1 if there are
+        // fewer than n or they include a character outside the alphabet
+        private final int[] contexts = new int[MAX_CONTEXT+1];
+        private int previous = -1; // symbol of the previous character, -1 if none or not in the alphabet
+        private boolean inWord = false, spacePending = false;
+
+        Trainer(int count){
+            this.count = count;
+            contexts[0] = CharTrie.ROOT;
+            for (int n=1; n<=MAX_CONTEXT; n++) contexts[n] = -1;
+            learnChar(' ');
+        }
+
+        void accept(char c){
+            if (Character.isAlphabetic(c) || c=='\'' || c=='-'){
+                if (spacePending) learnChar(' ');
+                spacePending = false;
+                inWord = true;
+                learnChar(Character.toLowerCase(c));
+            } else if (inWord){
+                inWord = false;
+                spacePending = true;
             }
         }
-        return sb.toString().trim();
+
+        void end(){
+            learnChar(' ');
+        }
+
+        private void learnChar(char c){
+            if (c>=128) { // accented letters etc. are outside the model
+                previous = -1;
+                return;
+            }
+            unigrams[c] += count;
+            unigramTotal += count;
+            int symbol = CharTrie.symbolOf(c);
+            if (symbol<0) {
+                previous = -1;
+                return;
+            }
+            // the contexts that end with the previous character are only created now that
+            // something has followed them
+            for (int n=MAX_CONTEXT; n>=1; n--)
+                contexts[n] = (previous<0 || contexts[n-1]<0) ? -1 : contexts[n-1];
+            for (int n=1; n<=MAX_CONTEXT && contexts[n]>=0; n++){
+                contexts[n] = trie.extend(contexts[n], previous, contexts[n-1]);
+                trie.add(contexts[n], symbol, count);
+            }
+            previous = symbol;
+        }
     }
 
     /**
@@ -91,17 +497,24 @@ public class LanguageModel {
      * @param s the string that a space may or may not follow
      * @return estimated probability that a space could follow the given s
      */
-    public double probBeforeSpaceFloored(String s){
+    public double probBeforeSpaceFloored(CharSequence s){
         double OUTPUT_LOW=0.1, OUTPUT_HIGH=1.0;
 
-        double[] matches = ngram.getAll(s);
-        double cS = Util.arraySum(matches);
+        int node = find(s);
+        double cS = node<0 ? 0 : ngram.total(node);
         if (cS==0)
             return OUTPUT_LOW;
         else
 //            return (matches[' ']/cS + 0.25) / 1.2;
-            return  ((matches[' ']/cS )  ) * (OUTPUT_HIGH - OUTPUT_LOW) + OUTPUT_LOW;
+            return  ((ngram.count(node, SPACE)/cS )  ) * (OUTPUT_HIGH - OUTPUT_LOW) + OUTPUT_LOW;
+
+    }
 
+    /**
+     * Natural log of probBeforeSpaceFloored(s), for scores kept as log probabilities
+     */
+    public double logProbBeforeSpaceFloored(CharSequence s){
+        return Math.log(probBeforeSpaceFloored(s));
     }
 
     /**
@@ -118,49 +531,171 @@ public class LanguageModel {
      * @param s the "history" - what has been typed so far
      * @return an array of probabilities [0...1] for each character in the full ASCII 7-bit char set [0...127]
      */
-    //TODO Consider ways of stopping recursion early
     public double[] wittenBell(String s){
-        if (s.length()>7) s = s.substring(s.length()-7);
-        double[] matches = ngram.getAll(s);
-        double uS = Util.countNonZero(matches);
-        double cS = Util.arraySum(matches);
-
-        double uniS = 0; for (int i=0; i<128; i++) uniS+=unigrams[i];
-
-        if (cS==0){
-			// Context unknown - based on shorter
-            if (s.length()==0)
-                return Util.product(1.0/uniS, unigrams);
-            else
-                return wittenBell(s.substring(1));
-        }
-        double lambda = 1-(uS/(uS+cS));
-        double[] wittenbell;
-        if (s.length()>1)
-            wittenbell = Util.add( Util.product(lambda, Util.product(1.0/cS,matches)) , Util.product(1.0-lambda, wittenBell(s.substring(1))) );
-        else
-            wittenbell = Util.add( Util.product(lambda, Util.product(1.0/cS,matches)) , Util.product(1.0-lambda, Util.product(1.0/uniS, unigrams)) );
-
+        double[] wittenbell = new double[128];
+        wittenBell(s, wittenbell);
         return wittenbell;
     }
 
-    class NGram{
-        Map<String,NextStore> store = new HashMap<>();
+    /**
+     * Allocation free version of wittenBell(String) that fills a caller supplied array
+     *
+     * Rather than recursing from the longest context down, this starts from the unigram
+     * probabilities and mixes in each suffix of s from shortest to longest. Suffixes that have
+     * never been seen are skipped just as the recursive definition falls back to shorter ones.
+     * @param s the "history" - what has been typed so far
+     * @param out array of at least 128 entries, overwritten with the probabilities
+     */
+    public void wittenBell(CharSequence s, double[] out){
+        wittenBell(nodeFor(s), out);
+    }
 
-        public void learn(String context, char c){
-            if (!store.containsKey(context))
-                store.put(context, new NextStore());
-            store.get(context).freq[c]++;
+    /**
+     * Witten Bell probabilities for the text a ContextState has been built from - as wittenBell(String)
+     * but without looking at the text again
+     * @param state the position in the model, from getState or advance
+     * @param out array of at least 128 entries, overwritten with the probabilities
+     */
+    public void wittenBell(ContextState state, double[] out){
+        wittenBell(state.node, out);
+    }
+
+    /**
+     * Natural logs of the wittenBell probabilities of some characters for a state, so the
+     * probability of a long string can be scored as a sum that won't underflow. Only the
+     * characters asked for are logged - the others are left as plain probabilities, as a
+     * decoder only looks at the keys near a tap. Characters the model gives no probability
+     * to are Double.NEGATIVE_INFINITY.
+     * @param state the position in the model, from getState or advance
+     * @param chars the characters wanted, in chars[0...n)
+     * @param out array of at least 128 entries, overwritten with the probabilities
+     */
+    public void logWittenBell(ContextState state, char[] chars, int n, double[] out){
+        wittenBell(state.node, out);
+        for (int i=0; i<n; i++){
+            char c = chars[i];
+            out[c] = out[c]>0 ? Math.log(out[c]) : Double.NEGATIVE_INFINITY;
         }
+    }
+
+    /**
+     * Get the model's position after the given text
+     * @param s the "history" - what has been typed so far
+     * @return an immutable state that can be queried with wittenBell or moved on with advance
+     */
+    public ContextState getState(CharSequence s){
+        return new ContextState(nodeFor(s));
+    }
+
+    /**
+     * Move a state on by one character - O(1) and independent of how much text came before
+     * @param state the position after some text
+     * @param c the next character typed
+     * @return the position after the text followed by c
+     */
+    public ContextState advance(ContextState state, char c){
+        return new ContextState(ngram.next(state.node, CharTrie.symbolOf(c)));
+    }
 
-        public double[] getAll(String context){
-            if (store.containsKey(context))
-                return store.get(context).freq;
-            else
-                return new double[128];
+    /**
+     * The node of the longest learned context that s ends with, at most MAX_CONTEXT long
+     */
+    private int nodeFor(CharSequence s){
+        int start = Math.max(0, s.length()-MAX_CONTEXT);
+        if (index!=null){
+            long code = ContextIndex.EMPTY;
+            for (int i=start; i<s.length(); i++)
+                code = ContextIndex.roll(code, CharTrie.symbolOf(s.charAt(i)));
+            return index.longest(code);
         }
+        int node = CharTrie.ROOT;
+        for (int i=start; i<s.length(); i++)
+            node = ngram.next(node, CharTrie.symbolOf(s.charAt(i)));
+        return node;
     }
-    class NextStore{
-        double[] freq = new double[128];
+
+    /**
+     * The node of exactly the context s (not trimmed)
+     * @return the node or -1 if s has not been learned as a context
+     */
+    private int find(CharSequence s){
+        if (index!=null)
+            return index.get(ContextIndex.code(s, 0, s.length()));
+        return ngram.find(s, 0, s.length());
+    }
+
+    private void wittenBell(int node, double[] out){
+        if (distributions!=null){
+            double residual = residuals[node];
+            for (int i=0; i<128; i++)
+                out[i] = residual*unigramProbabilities[i];
+            int base = node*CharTrie.ALPHABET_SIZE;
+            for (int i=0; i<CharTrie.ALPHABET_SIZE; i++)
+                out[CharTrie.charOf(i)] = distributions[base+i];
+            return;
+        }
+        // the result only depends on the longest learned suffix so that is what gets cached
+        if (cache!=null && cache.get(node, out)) return;
+        mix(node, out);
+        if (cache!=null) cache.put(node, out);
+    }
+
+    /**
+     * Fill out with the probabilities for node's context by mixing its counts over those of
+     * its suffixes, the shortest first and the unigrams before that
+     */
+    private void mix(int node, double[] out){
+        if (node==CharTrie.ROOT){
+            if (unigramProbabilities!=null){
+                System.arraycopy(unigramProbabilities, 0, out, 0, 128);
+                return;
+            }
+            if (unigramTotal==0){ // nothing learned (e.g. no model asset) so no preference
+                for (int i=0; i<128; i++)
+                    out[i] = CharTrie.symbolOf((char)i)<0 ? 0 : 1.0/CharTrie.ALPHABET_SIZE;
+                return;
+            }
+            double uniS = unigramTotal;
+            for (int i=0; i<128; i++)
+                out[i] = (1.0/uniS)*unigrams[i];
+            return;
+        }
+        mix(ngram.suffix(node), out);
+        ngram.interpolate(node, out);
+    }
+
+    /**
+     * Get the next character counts for the given context
+     * @param context the exact context (not trimmed)
+     * @return counts indexed by character, all zero if the context has not been learned
+     */
+    double[] getAll(String context){
+        double[] matches = new double[128];
+        int node = find(context);
+        if (node>=0)
+            ngram.getAll(node, matches);
+        return matches;
+    }
+
+    /**
+     * An immutable handle on a position in the model: the longest learned context that the text
+     * typed so far ends with. Learning more may add longer contexts that existing states won't use.
+     */
+    public static final class ContextState {
+        final int node;
+
+        ContextState(int node){
+            this.node = node;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return (o instanceof ContextState) && ((ContextState)o).node == node;
+        }
+
+        @Override
+        public int hashCode(){
+            return node;
+        }
     }
 }
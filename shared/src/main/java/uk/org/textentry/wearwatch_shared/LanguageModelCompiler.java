@@ -0,0 +1,145 @@
+package uk.org.textentry.wearwatch_shared;
+/**
+ * Command line tool that trains a LanguageModel from plain text corpora and saves it in the
+ * binary format that WordPredictor loads at startup
+ *
+ * Run by the compileLanguageModel task in the shared build.gradle so the model ships as an
+ * asset and the watch never has to train. Must only use plain Java (no Android classes) as it
+ * runs on the build machine.
+ *
+ * Usage: LanguageModelCompiler [-threads n] [-min 1,1,2] [-entropy 1e-5] [-bits 8] output.lm corpus.txt [corpus.txt ...] [-counts counts.txt ...]
+ *
+ * Corpus files are UTF-8 with one sentence per line, learned exactly as LanguageModel.learn
+ * would (so repeat a line to boost it). Blank lines and lines starting with # are skipped.
+ * Files after -counts are frequency lists such as res/raw/wordlist.txt, learned with
+ * LanguageModel.learnCounts. With -threads each file is learned by a ParallelTrainer, which
+ * gives exactly the same model as learning it on one thread. -min, -entropy and -bits shrink
+ * the model before it is saved - see LanguageModelReducer.
+ *
+ *  Distributed under MIT License
+ *
+ *  Copyright (c) 2017 Mark Dunlop at University of Strathclyde (Scotland, UK, EU)
+ *  https://personal.cis.strath.ac.uk/mark.dunlop/research/
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE..
+ */
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.List;
+
+public class LanguageModelCompiler {
+
+    public static void main(String[] args) throws IOException {
+        int threads = 1, first = 0, bits = 32;
+        int[] minCount = null;
+        double entropy = 0;
+        for (; first+1<args.length && args[first].startsWith("-"); first+=2) {
+            if (args[first].equals("-threads")) threads = Integer.parseInt(args[first+1]);
+            else if (args[first].equals("-min")) minCount = LanguageModelReducer.parseCounts(args[first+1]);
+            else if (args[first].equals("-entropy")) entropy = Double.parseDouble(args[first+1]);
+            else if (args[first].equals("-bits")) bits = Integer.parseInt(args[first+1]);
+            else break;
+        }
+        if (args.length-first<2) {
+            System.err.println("Usage: LanguageModelCompiler [-threads n] [-min 1,1,2] [-entropy 1e-5] [-bits 8] output.lm corpus.txt [corpus.txt ...] [-counts counts.txt ...]");
+            System.exit(1);
+        }
+
+        long start = System.currentTimeMillis();
+        LanguageModel lm = new LanguageModel();
+        ParallelTrainer trainer = threads>1 ? new ParallelTrainer(threads) : null;
+        boolean counts = false;
+        for (int i=first+1; i<args.length; i++) {
+            File file = new File(args[i]);
+            if (args[i].equals("-counts")) {
+                counts = true;
+            } else if (counts) {
+                int entries;
+                if (trainer==null)
+                    entries = learnCounts(lm, file);
+                else {
+                    List<String> lines = ParallelTrainer.readLines(file);
+                    lm.merge(trainer.learnCounts(lines));
+                    entries = lines.size();
+                }
+                System.out.println("Learned "+entries+" counted entries from "+args[i]);
+            } else {
+                int sentences;
+                if (trainer==null)
+                    sentences = learnCorpus(lm, file);
+                else {
+                    List<String> lines = ParallelTrainer.readSentences(file);
+                    lm.merge(trainer.learnSentences(lines));
+                    sentences = lines.size();
+                }
+                System.out.println("Learned "+sentences+" sentences from "+args[i]);
+            }
+        }
+        if (trainer!=null) trainer.shutdown();
+        if (minCount!=null || entropy>0) {
+            int contexts = lm.ngram.size();
+            lm = LanguageModelReducer.prune(lm, minCount, entropy);
+            System.out.println("Pruned "+contexts+" contexts to "+lm.ngram.size());
+        }
+
+        File output = new File(args[first]);
+        File dir = output.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Could not create "+dir);
+        OutputStream out = new FileOutputStream(output);
+        try {
+            lm.write(out, bits);
+        } finally {
+            out.close();
+        }
+        System.out.println("Wrote "+output+" ("+output.length()+" bytes, "+lm.ngram.size()+" contexts) in "
+                +(System.currentTimeMillis()-start)+"ms");
+    }
+
+    /**
+     * Learn every sentence of a corpus file
+     * @return the number of sentences learned
+     */
+    static int learnCorpus(LanguageModel lm, File corpus) throws IOException {
+        Reader in = new InputStreamReader(new FileInputStream(corpus), "UTF-8");
+        try {
+            return lm.learn(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Learn every entry of a frequency list file
+     * @return the number of entries learned
+     */
+    static int learnCounts(LanguageModel lm, File counts) throws IOException {
+        Reader in = new InputStreamReader(new FileInputStream(counts), "UTF-8");
+        try {
+            return lm.learnCounts(in);
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package uk.org.textentry.wearwatch_shared;
+/**
+ * Makes smaller language models for watches with little heap, trading size against accuracy
+ *
+ * Three reductions, which can be combined:
+ *  - minimum counts per context length, so continuations seen only once or twice after long
+ *    contexts are forgotten (see CharTrie.prune)
+ *  - entropy pruning, dropping the counts of contexts whose predictions differ so little from
+ *    those of their suffix (one character shorter) that, weighted by how often the context
+ *    comes up, less than a threshold of information in bits is lost (after Stolcke 1998)
+ *  - 8 or 16 bit counts in the model file (see CountQuantiser)
+ *
+ * Accuracy is measured on the EnronTestPhrases as the percentage of characters that the model
+ * ranks first given the phrase so far, and as the cross entropy in bits per character. Run on
+ * the build machine, with only a model file it prints a table of settings against file size,
+ * frozen heap and accuracy; given an output file it writes the reduced model:
+ *   LanguageModelReducer model.lm [reduced.lm] [-min 1,1,2,2,3] [-entropy 1e-6] [-bits 8]
+ * LanguageModelCompiler takes the same options.
+ *
+ *  Distributed under MIT License
+ *
+ *  Copyright (c) 2017 Mark Dunlop at University of Strathclyde (Scotland, UK, EU)
+ *  https://personal.cis.strath.ac.uk/mark.dunlop/research/
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE..
+ */
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+public class LanguageModelReducer {
+
+    private static final int[][] REPORT_MIN_COUNTS = {null, {1,1,1,2}, {1,2}, {1,1,2,2,3,3,4}, {2,2,3,3,4,4,5}};
+    private static final double[] REPORT_THRESHOLDS = {0, 1e-6, 1e-5, 1e-4};
+    private static final int[] REPORT_BITS = {32, 16, 8};
+
+    /**
+     * A pruned copy of a model that can still learn
+     * @param minCount see CharTrie.prune, null to keep every count
+     * @param entropyThreshold contexts that add fewer bits than this over their suffix are
+     * dropped, 0 to keep them all
+     * @throws IllegalStateException if lm is frozen
+     */
+    public static LanguageModel prune(LanguageModel lm, int[] minCount, double entropyThreshold){
+        if (lm.isFrozen()) throw new IllegalStateException("Only models that can still learn can be pruned");
+        LanguageModel pruned = copyWith(lm, ((CharTrie) lm.ngram).prune(minCount, null));
+        if (entropyThreshold>0)
+            pruned = copyWith(lm, ((CharTrie) pruned.ngram).prune(null, lowEntropyContexts(pruned, entropyThreshold)));
+        return pruned;
+    }
+
+    private static LanguageModel copyWith(LanguageModel lm, CharTrie trie){
+        LanguageModel copy = new LanguageModel();
+        copy.unigrams = lm.unigrams.clone();
+        copy.unigramTotal = lm.unigramTotal;
+        copy.ngram = trie;
+        return copy;
+    }
+
+    /**
+     * @return the contexts whose own counts add less than threshold bits, weighted by how
+     * often the context occurs, over the prediction of their suffix
+     */
+    static boolean[] lowEntropyContexts(LanguageModel lm, double threshold){
+        ContextTrie trie = lm.ngram;
+        boolean[] drop = new boolean[trie.size()];
+        double[] p = new double[128], q = new double[128];
+        double all = lm.unigramTotal; // every character learned, so the weight of a context is total/all
+        for (int node=1; node<trie.size(); node++){
+            if (trie.total(node)==0) continue;
+            lm.wittenBell(new LanguageModel.ContextState(node), p);
+            lm.wittenBell(new LanguageModel.ContextState(trie.suffix(node)), q);
+            double bits = 0;
+            for (int c=0; c<128; c++)
+                if (p[c]>0 && q[c]>0) bits += p[c]*Math.log(p[c]/q[c]);
+            drop[node] = (trie.total(node)/all)*bits/Math.log(2) < threshold;
+        }
+        return drop;
+    }
+
+    /**
+     * @return the percentage of the phrases' characters (and the space after each) that lm
+     * gives the highest probability to, given the phrase up to that character
+     */
+    public static double characterAccuracy(LanguageModel lm, String[] phrases){
+        double[] p = new double[128];
+        int correct = 0, total = 0;
+        for (String phrase : phrases){
+            String s = " "+phrase+" ";
+            LanguageModel.ContextState state = lm.getState(" ");
+            for (int i=1; i<s.length(); i++){
+                lm.wittenBell(state, p);
+                int best = 0;
+                for (int c=1; c<128; c++) if (p[c]>p[best]) best = c;
+                if (best==s.charAt(i)) correct++;
+                total++;
+                state = lm.advance(state, s.charAt(i));
+            }
+        }
+        return 100.0*correct/total;
+    }
+
+    /**
+     * @return the average number of bits lm needs to encode each character of the phrases
+     */
+    public static double bitsPerCharacter(LanguageModel lm, String[] phrases){
+        double[] p = new double[128];
+        double bits = 0;
+        int total = 0;
+        for (String phrase : phrases){
+            String s = " "+phrase+" ";
+            LanguageModel.ContextState state = lm.getState(" ");
+            for (int i=1; i<s.length(); i++){
+                lm.wittenBell(state, p);
+                bits -= Math.log(Math.max(p[s.charAt(i)], 1e-12))/Math.log(2);
+                total++;
+                state = lm.advance(state, s.charAt(i));
+            }
+        }
+        return bits/total;
+    }
+
+    /**
+     * @return a table of file size, frozen heap and accuracy for a range of reductions of lm
+     */
+    public static String report(LanguageModel lm, String[] phrases) throws IOException {
+        StringBuilder report = new StringBuilder(String.format("%-16s %7s %5s %8s %9s %9s %8s %8s%n",
+                "min counts", "entropy", "bits", "contexts", "file KB", "heap KB", "top-1 %", "bits/ch"));
+        for (int[] minCount : REPORT_MIN_COUNTS)
+            for (double threshold : REPORT_THRESHOLDS){
+                LanguageModel pruned = prune(lm, minCount, threshold);
+                for (int bits : REPORT_BITS){
+                    byte[] file = bytes(pruned, bits);
+                    LanguageModel frozen = LanguageModel.readFrozen(ByteBuffer.wrap(file));
+                    report.append(String.format("%-16s %7s %5d %8d %9.1f %9.1f %7.2f %8.3f%n",
+                            minCount==null ? "-" : join(minCount), threshold==0 ? "-" : String.valueOf(threshold), bits,
+                            frozen.ngram.size(), file.length/1024.0, frozen.sizeInBytes()/1024.0,
+                            characterAccuracy(frozen, phrases), bitsPerCharacter(frozen, phrases)));
+                }
+            }
+        return report.toString();
+    }
+
+    private static byte[] bytes(LanguageModel lm, int countBits) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        lm.write(out, countBits);
+        return out.toByteArray();
+    }
+
+    private static String join(int[] values){
+        StringBuilder s = new StringBuilder();
+        for (int value : values) s.append(s.length()>0 ? "," : "").append(value);
+        return s.toString();
+    }
+
+    /**
+     * @param list comma separated counts such as "1,1,2,2,3"
+     */
+    public static int[] parseCounts(String list){
+        String[] values = list.split(",");
+        int[] counts = new int[values.length];
+        for (int i=0; i<values.length; i++)
+            counts[i] = Integer.parseInt(values[i].trim());
+        return counts;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length<1) {
+            System.err.println("Usage: LanguageModelReducer model.lm [reduced.lm] [-min 1,1,2,2,3] [-entropy 1e-6] [-bits 8]");
+            System.exit(1);
+        }
+        LanguageModel lm = LanguageModel.load(new File(args[0]));
+        if (args.length==1) {
+            System.out.print(report(lm, EnronTestPhrases.PHRASES));
+            return;
+        }
+        int[] minCount = null;
+        double threshold = 0;
+        int bits = 32;
+        for (int i=2; i+1<args.length; i+=2) {
+            if (args[i].equals("-min")) minCount = parseCounts(args[i+1]);
+            else if (args[i].equals("-entropy")) threshold = Double.parseDouble(args[i+1]);
+            else if (args[i].equals("-bits")) bits = Integer.parseInt(args[i+1]);
+            else throw new IllegalArgumentException("Unknown option "+args[i]);
+        }
+        LanguageModel reduced = prune(lm, minCount, threshold);
+        OutputStream out = new FileOutputStream(args[1]);
+        try {
+            reduced.write(out, bits);
+        } finally {
+            out.close();
+        }
+        System.out.printf("%d contexts -> %d, top-1 %.2f%% -> %.2f%%%n", lm.ngram.size(), reduced.ngram.size(),
+                characterAccuracy(lm, EnronTestPhrases.PHRASES), characterAccuracy(reduced, EnronTestPhrases.PHRASES));
+    }
+}
@@ -0,0 +1,196 @@
+package uk.org.textentry.wearwatch_shared;
+/**
+ * Trains a LanguageModel on several cores by splitting the corpus into consecutive shards,
+ * learning each shard into its own model on a fork/join pool and merging the shard models
+ * back together in corpus order
+ *
+ * Because LanguageModel.merge keeps the order contexts were first seen, the result is exactly
+ * the model that learning the corpus sequentially would give - same counts and same bytes when
+ * written. Used by LanguageModelCompiler on the build machine; plain Java only.
+ *
+ * Running main gives a scaling benchmark:
+ *   ParallelTrainer corpus.txt [corpus.txt ...] [-counts counts.txt ...]
+ *
+ *  Distributed under MIT License
+ *
+ *  Copyright (c) 2017 Mark Dunlop at University of Strathclyde (Scotland, UK, EU)
+ *  https://personal.cis.strath.ac.uk/mark.dunlop/research/
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE..
+ */
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class ParallelTrainer {
+
+    private final ForkJoinPool pool;
+    private final int shards;
+
+    /**
+     * @param threads number of worker threads, which is also the number of shards
+     */
+    public ParallelTrainer(int threads){
+        if (threads<1) throw new IllegalArgumentException("Need at least one thread");
+        pool = new ForkJoinPool(threads);
+        shards = threads;
+    }
+
+    /**
+     * Learn each sentence once, as LanguageModel.learn would in the given order
+     */
+    public LanguageModel learnSentences(List<String> sentences){
+        return pool.invoke(new Shard(sentences, false, 0, sentences.size(), shardSize(sentences)));
+    }
+
+    /**
+     * Learn each line of a frequency list, as LanguageModel.learnCounts would in the given order
+     */
+    public LanguageModel learnCounts(List<String> lines){
+        return pool.invoke(new Shard(lines, true, 0, lines.size(), shardSize(lines)));
+    }
+
+    public void shutdown(){
+        pool.shutdown();
+    }
+
+    private int shardSize(List<String> lines){
+        return Math.max(1, (lines.size()+shards-1)/shards);
+    }
+
+    /**
+     * Learns lines [start...end) - directly if no bigger than a shard, otherwise by splitting in
+     * two and merging the second half's model into the first's
+     */
+    private static class Shard extends RecursiveTask<LanguageModel> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> lines;
+        private final boolean counts;
+        private final int start, end, shardSize;
+
+        Shard(List<String> lines, boolean counts, int start, int end, int shardSize){
+            this.lines = lines;
+            this.counts = counts;
+            this.start = start;
+            this.end = end;
+            this.shardSize = shardSize;
+        }
+
+        @Override
+        protected LanguageModel compute(){
+            if (end-start <= shardSize) {
+                LanguageModel lm = new LanguageModel();
+                for (int i=start; i<end; i++)
+                    if (counts) lm.learnCount(lines.get(i)); else lm.learn(lines.get(i));
+                return lm;
+            }
+            int middle = (start+end) >>> 1;
+            Shard first = new Shard(lines, counts, start, middle, shardSize);
+            first.fork();
+            LanguageModel second = new Shard(lines, counts, middle, end, shardSize).compute();
+            LanguageModel lm = first.join();
+            lm.merge(second);
+            return lm;
+        }
+    }
+
+    /**
+     * Read a corpus with one sentence per line, skipping blank lines and lines starting with #
+     * as LanguageModel.learn(Reader) does
+     */
+    public static List<String> readSentences(File corpus) throws IOException {
+        List<String> sentences = new ArrayList<>();
+        for (String line : readLines(corpus))
+            if (line.trim().length()>0 && !line.startsWith("#"))
+                sentences.add(line);
+        return sentences;
+    }
+
+    public static List<String> readLines(File file) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        List<String> lines = new ArrayList<>();
+        try {
+            for (String line; (line = in.readLine()) != null; )
+                lines.add(line);
+        } finally {
+            in.close();
+        }
+        return lines;
+    }
+
+    /**
+     * Scaling benchmark: trains the given corpora with 1, 2, 4 ... up to all available cores,
+     * checking each result against sequential training
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> sentences = new ArrayList<>(), counts = new ArrayList<>();
+        boolean inCounts = false;
+        for (String arg : args) {
+            if (arg.equals("-counts")) inCounts = true;
+            else if (inCounts) counts.addAll(readLines(new File(arg)));
+            else sentences.addAll(readSentences(new File(arg)));
+        }
+
+        long start, best = Long.MAX_VALUE;
+        LanguageModel sequential = null;
+        for (int run=0; run<3; run++) {
+            start = System.nanoTime();
+            sequential = new LanguageModel();
+            for (String s : sentences) sequential.learn(s);
+            for (String line : counts) sequential.learnCount(line);
+            best = Math.min(best, System.nanoTime()-start);
+        }
+        double sequentialMs = best/1e6;
+        byte[] expected = bytes(sequential);
+        System.out.printf("%d sentences, %d counted entries, %d contexts%n", sentences.size(), counts.size(), sequential.ngram.size());
+        System.out.printf("sequential learn: %.0fms%n", sequentialMs);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads=1; ; threads=Math.min(2*threads, cores)) {
+            ParallelTrainer trainer = new ParallelTrainer(threads);
+            best = Long.MAX_VALUE;
+            LanguageModel lm = null;
+            for (int run=0; run<3; run++) {
+                start = System.nanoTime();
+                lm = trainer.learnSentences(sentences);
+                if (!counts.isEmpty()) lm.merge(trainer.learnCounts(counts));
+                best = Math.min(best, System.nanoTime()-start);
+            }
+            trainer.shutdown();
+            System.out.printf("%2d threads: %.0fms speedup %.2f identical %b%n", threads, best/1e6,
+                    sequentialMs/(best/1e6), Arrays.equals(expected, bytes(lm)));
+            if (threads==cores) break;
+        }
+    }
+
+    private static byte[] bytes(LanguageModel lm) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        lm.write(out);
+        return out.toByteArray();
+    }
+}
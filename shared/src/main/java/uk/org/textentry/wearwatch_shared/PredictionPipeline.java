@@ -0,0 +1,270 @@
+package uk.org.textentry.wearwatch_shared;
+/**
+ * Runs a WordPredictor on a thread of its own so decoding taps never holds up the UI thread
+ *
+ * Keyboard events are numbered and queued (without locking) in the order they happen, then
+ * applied to the predictor one at a time, in that order, by a single worker thread - so the
+ * predictor ends up exactly as if it had been called directly. When typing outpaces decoding
+ * only the result of the latest event is passed back: results the worker has been overtaken
+ * by are never delivered, and at most one delivery is waiting on the main thread at a time.
+ * Results of events from before finishSentence are dropped as they belong to the old sentence.
+ *
+ * Also tracks whether the user is between words, as space is ignored if the last thing
+ * typed was a space (or a picked suggestion).
+ *
+ * All methods other than the Listener callbacks are to be called from the main thread.
+ *
+ *  Distributed under MIT License
+ *
+ *  Copyright (c) 2017 Mark Dunlop at University of Strathclyde (Scotland, UK, EU)
+ *  https://personal.cis.strath.ac.uk/mark.dunlop/research/
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE..
+ */
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class PredictionPipeline {
+
+    /**
+     * Called on the main thread
+     */
+    public interface Listener {
+        /**
+         * @param result the predictions after the latest event decoded
+         * @param newWord true if the user is between words, so space would be ignored
+         * @param sequence the number of the event, as returned when it was queued
+         */
+        void onPrediction(WordPredictor.PredictionResult result, boolean newWord, long sequence);
+
+        void onSentenceFinished(TextStats stats);
+    }
+
+    private static final int TAP = 0, BACKSPACE = 1, SPACE = 2, PICK = 3, FINISH = 4, DESTROY = 5;
+
+    private static final class Event {
+        final long sequence;
+        final int type;
+        final int x, y;
+        final String word;
+
+        Event(long sequence, int type, int x, int y, String word) {
+            this.sequence = sequence;
+            this.type = type;
+            this.x = x;
+            this.y = y;
+            this.word = word;
+        }
+    }
+
+    private static final class Delivery {
+        final WordPredictor.PredictionResult result;
+        final boolean newWord;
+        final long sequence;
+
+        Delivery(WordPredictor.PredictionResult result, boolean newWord, long sequence) {
+            this.result = result;
+            this.newWord = newWord;
+            this.sequence = sequence;
+        }
+    }
+
+    private final WordPredictor predictor;
+    private final Listener listener;
+    private final ConcurrentLinkedQueue<Event> events = new ConcurrentLinkedQueue<>();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "WordPredictor");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private final Handler mainThread = new Handler(Looper.getMainLooper());
+    private final AtomicLong lastSequence = new AtomicLong();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final AtomicReference<Delivery> waiting = new AtomicReference<>();
+    private volatile long sentenceStart = 0; //sequence of the latest finishSentence, earlier results are stale
+    private boolean destroyed = false; //main thread only
+
+    //worker thread only
+    private boolean newWord = true;
+    private WordPredictor.PredictionResult latest = null;
+    private long latestSequence;
+
+    /**
+     * @param predictor from now on only to be used through this pipeline
+     * @param listener told of results on the main thread
+     */
+    public PredictionPipeline(WordPredictor predictor, Listener listener) {
+        this.predictor = predictor;
+        this.listener = listener;
+    }
+
+    /**
+     * @return the sequence number of the event
+     */
+    public long tap(int x, int y) {
+        return submit(TAP, x, y, null);
+    }
+
+    public long backspace() {
+        return submit(BACKSPACE, 0, 0, null);
+    }
+
+    public long space() {
+        return submit(SPACE, 0, 0, null);
+    }
+
+    public long suggestionPicked(String word) {
+        return submit(PICK, 0, 0, word);
+    }
+
+    /**
+     * Finish the sentence - the stats are passed to Listener.onSentenceFinished once every
+     * earlier event has been decoded, and results of those events are no longer delivered
+     */
+    public long finishSentence() {
+        long sequence = submit(FINISH, 0, 0, null);
+        sentenceStart = sequence;
+        return sequence;
+    }
+
+    /**
+     * @return true if no event has been queued after the one numbered sequence
+     */
+    public boolean isLatest(long sequence) {
+        return lastSequence.get() == sequence;
+    }
+
+    /**
+     * Stop the worker once the events already queued are done, then destroy the predictor.
+     * Events after this are ignored and no more results are delivered.
+     */
+    public void destroy() {
+        if (destroyed) return;
+        submit(DESTROY, 0, 0, null);
+        destroyed = true;
+        worker.shutdown();
+    }
+
+    private long submit(int type, int x, int y, String word) {
+        if (destroyed) return lastSequence.get();
+        long sequence = lastSequence.incrementAndGet();
+        events.offer(new Event(sequence, type, x, y, word));
+        if (draining.compareAndSet(false, true))
+            worker.execute(drain);
+        return sequence;
+    }
+
+    /**
+     * Decode everything queued, then pass on the latest result - repeated if more events came in
+     * after the queue was seen empty but before draining was cleared
+     */
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            do {
+                for (Event event; (event = events.poll()) != null; )
+                    handle(event);
+                if (latest != null) deliver(latest, latestSequence);
+                latest = null;
+                draining.set(false);
+            } while (!events.isEmpty() && draining.compareAndSet(false, true));
+        }
+    };
+
+    private void handle(Event event) {
+        try {
+            switch (event.type) {
+                case TAP:
+                    latest = predictor.suggestionFor(event.x, event.y);
+                    newWord = false;
+                    break;
+                case BACKSPACE:
+                    latest = predictor.deleteLast();
+                    newWord = latest.currentSuggestion.length() == 0;
+                    break;
+                case SPACE:
+                    if (newWord) return; //not already put in a space
+                    latest = predictor.suggestionOnSpace();
+                    newWord = true;
+                    break;
+                case PICK:
+                    latest = predictor.suggestionPicked(event.word);
+                    newWord = true;
+                    break;
+                case FINISH:
+                    final TextStats stats = predictor.finishSentanceAndStartAnew();
+                    latest = null;
+                    newWord = true;
+                    mainThread.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (!destroyed) listener.onSentenceFinished(stats);
+                        }
+                    });
+                    return;
+                case DESTROY:
+                    predictor.destroy();
+                    latest = null;
+                    events.clear();
+                    return;
+            }
+            latestSequence = event.sequence;
+        } catch (KeyboardView.KeyboardException e) {
+            LogCat.e("Error on backspace");
+            e.printStackTrace();
+        } catch (final RuntimeException e) {
+            //fail on the main thread, as it would have without the pipeline
+            mainThread.post(new Runnable() {
+                @Override
+                public void run() {
+                    throw e;
+                }
+            });
+        }
+    }
+
+    /**
+     * Pass a result to the main thread - replacing the one waiting there if it hasn't been
+     * delivered yet, so only one delivery is ever queued
+     */
+    private void deliver(WordPredictor.PredictionResult result, long sequence) {
+        if (waiting.getAndSet(new Delivery(result, newWord, sequence)) == null)
+            mainThread.post(delivery);
+    }
+
+    private final Runnable delivery = new Runnable() {
+        @Override
+        public void run() {
+            Delivery d = waiting.getAndSet(null);
+            if (d == null || destroyed || d.sequence < sentenceStart) return;
+            listener.onPrediction(d.result, d.newWord, d.sequence);
+        }
+    };
+}
@@ -64,6 +64,35 @@ public class TopN {
 
         numberElementsInArray=Math.min(N,numberElementsInArray+1);
     }
+    /**
+     * @return true if an object of this weight would be kept by add, so callers can avoid
+     * building objects that would be thrown away
+     */
+    public boolean wouldKeep(double weight){
+        return numberElementsInArray<N || weight > values[N-1].getWeight();
+    }
+
+    public int size(){
+        return numberElementsInArray;
+    }
+
+    /**
+     * @return the i'th best object, 0 for the best
+     */
+    public TopNWeightedObject get(int i){
+        if (i>=numberElementsInArray) throw new IndexOutOfBoundsException(i+" of "+numberElementsInArray);
+        return values[i];
+    }
+
+    /**
+     * Take out the i'th best object, moving the worse ones up
+     */
+    public void remove(int i){
+        if (i>=numberElementsInArray) throw new IndexOutOfBoundsException(i+" of "+numberElementsInArray);
+        System.arraycopy(values, i+1, values, i, numberElementsInArray-i-1);
+        values[--numberElementsInArray] = null;
+    }
+
     public TopNWeightedObject[] getValues(){
         if (numberElementsInArray==N)
             return values;
@@ -77,6 +106,6 @@ public class TopN {
 
     public interface TopNWeightedObject {
         public double getWeight();
-        public void multiplyByWeight(double d);
+        public void addToWeight(double d);
     }
 }
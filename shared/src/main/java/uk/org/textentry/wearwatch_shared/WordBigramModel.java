@@ -0,0 +1,294 @@
+package uk.org.textentry.wearwatch_shared;
+/**
+ * Predicts the next word from the previous one, for the suggestion bar straight after a space
+ * or a picked suggestion, before any letter of the new word has been tapped
+ *
+ * Learned from a word bigram list such as res/raw/wordbigrams.txt ("of\tthe\t1000" - previous
+ * word, next word, count). Words are the numbers the Dawg lexicon gives them, so the k most
+ * frequent next words of every previous word are worked out once while loading and a
+ * prediction is a lookup by the previous word's number - no searching, and no Strings are made
+ * until the caller spells out the words it shows. Previous words without bigrams (and the start
+ * of a sentence) get the k most frequent next words over all bigrams. Words with the same count
+ * are taken in alphabetical order.
+ *
+ * Bigrams with a word that isn't in the lexicon (e.g. "u.s", which can't be typed) are skipped.
+ *
+ * As with the Dawg lexicon, the list is loaded on the build machine by WordModelCompiler and
+ * saved with write, and the keyboard reads the saved tables in place from the memory mapped
+ * file.
+ *
+ *  Distributed under MIT License
+ *
+ *  Copyright (c) 2017 Mark Dunlop at University of Strathclyde (Scotland, UK, EU)
+ *  https://personal.cis.strath.ac.uk/mark.dunlop/research/
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE..
+ */
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+public class WordBigramModel {
+
+    static final int FILE_MAGIC = 0x574B5742; //"WKWB"
+    static final int FILE_VERSION = 2;
+
+    private final int k;
+    private int lexiconWords = 0; //number of words in the lexicon the model was built with
+    private CharBuffer rows = CharBuffer.allocate(0); //by lexicon word number, its row of next+1, 0 if none
+    private CharBuffer next = CharBuffer.allocate(0); //k per row: word numbers+1 of the predictions, 0 padded
+    private CharBuffer fallback; //word numbers+1 of the k predictions after any other word, 0 padded
+
+    /**
+     * An empty model, which predicts nothing until load is called
+     * @param k the number of predictions to keep for each previous word
+     */
+    public WordBigramModel(int k){
+        if (k<1) throw new IllegalArgumentException("Need at least one prediction per word");
+        this.k = k;
+        fallback = CharBuffer.allocate(k);
+    }
+
+    /**
+     * Learn a bigram list, one "previous next count" per line separated by tabs or spaces,
+     * replacing anything learned before. Repeated bigrams (e.g. "of true" and "of TRUE") have
+     * their counts summed.
+     * @param in the list - read to the end but not closed
+     * @param lexicon the words to predict, which number them
+     * @return the number of bigrams learned
+     */
+    public int load(Reader in, Dawg lexicon) throws IOException {
+        HashMap<Integer, HashMap<Integer, Integer>> following = new HashMap<>();
+        HashMap<Integer, Integer> totals = new HashMap<>();
+        BufferedReader lines = new BufferedReader(in);
+        String[] pair = new String[2];
+        int bigrams = 0;
+        for (String line; (line = lines.readLine()) != null; ){
+            int count = CharTrie.parseWordListLine(line, 2, pair);
+            if (count<0) continue;
+            int previous = number(lexicon, pair[0]), word = number(lexicon, pair[1]);
+            if (previous<0 || word<0) continue;
+            HashMap<Integer, Integer> counts = following.get(previous);
+            if (counts==null) following.put(previous, counts = new HashMap<>());
+            add(counts, word, count);
+            add(totals, word, count);
+            bigrams++;
+        }
+
+        //cut to the top k only once every count is summed
+        lexiconWords = lexicon.wordCount();
+        char[] rows = new char[lexiconWords], next = new char[following.size()*k];
+        int row = 0;
+        for (int previous=0; previous<lexiconWords; previous++){
+            HashMap<Integer, Integer> counts = following.get(previous);
+            if (counts==null) continue;
+            top(counts, lexicon, next, row*k);
+            rows[previous] = (char)++row;
+        }
+        char[] fallback = new char[k];
+        top(totals, lexicon, fallback, 0);
+        this.rows = CharBuffer.wrap(rows);
+        this.next = CharBuffer.wrap(next);
+        this.fallback = CharBuffer.wrap(fallback);
+        return bigrams;
+    }
+
+    private static int number(Dawg lexicon, String word){
+        return lexicon.wordAt(lexicon.find(word, 0, word.length()));
+    }
+
+    /**
+     * Put the numbers of up to k likely next words, most likely first, into out
+     * @param previousWord the lexicon's number for the word just typed, or -1 at the start of
+     *                     a sentence or after a word that isn't in the lexicon
+     * @return the number of predictions - at most k and no more than fit in out
+     */
+    public int predict(int previousWord, int[] out){
+        int row = previousWord>=0 && previousWord<rows.limit() ? rows.get(previousWord) : 0;
+        int n = 0;
+        for (int i=0; i<k && n<out.length; i++){
+            int w = row==0 ? fallback.get(i) : next.get((row-1)*k+i);
+            if (w==0) break;
+            out[n++] = w-1;
+        }
+        return n;
+    }
+
+    /**
+     * @return the number of previous words with predictions of their own
+     */
+    public int size(){
+        return next.limit()/k;
+    }
+
+    /**
+     * @return the size of the tables in bytes - in the mapped file once read, not on the heap
+     */
+    public long sizeInBytes(){
+        return 2L*(rows.limit() + next.limit() + fallback.limit());
+    }
+
+    /**
+     * Save the model for read
+     *
+     * Format (big endian): magic "WKWB", version, alphabet size, k, number of words in the
+     * lexicon and number of rows, then as chars the row+1 of each lexicon word (0 for none), k
+     * predictions (word number+1 or 0) for each row and the k fallback predictions.
+     * @param os stream to write to - flushed but not closed
+     */
+    public void write(OutputStream os) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(FILE_VERSION);
+        out.writeInt(CharTrie.ALPHABET_SIZE);
+        out.writeInt(k);
+        out.writeInt(lexiconWords);
+        out.writeInt(size());
+        write(out, rows);
+        write(out, next);
+        write(out, fallback);
+        out.flush();
+    }
+
+    private static void write(DataOutputStream out, CharBuffer chars) throws IOException {
+        for (int i=0; i<chars.limit(); i++) out.writeChar(chars.get(i));
+    }
+
+    /**
+     * Read a model saved by write - the tables are used in place, not copied
+     * @param in buffer positioned at the start of the model, typically memory mapped - must
+     *           not be changed afterwards
+     * @param lexicon the lexicon the model was built with
+     * @throws IOException if the buffer does not hold a bigram model of this version for lexicon
+     */
+    public static WordBigramModel read(ByteBuffer in, Dawg lexicon) throws IOException {
+        try {
+            if (in.getInt() != FILE_MAGIC)
+                throw new IOException("Not a word bigram file");
+            int version = in.getInt();
+            if (version != FILE_VERSION)
+                throw new IOException("Unsupported word bigram version "+version);
+            if (in.getInt() != CharTrie.ALPHABET_SIZE)
+                throw new IOException("Word bigrams built for a different alphabet");
+            int k = in.getInt(), words = in.getInt(), rows = in.getInt();
+            if (words != lexicon.wordCount())
+                throw new IOException("Word bigrams built for a different lexicon");
+            //checked before slicing so a corrupt file can't ask for a negative or huge buffer
+            if (k<1 || rows<0 || rows>words || in.remaining() < 2L*(words + (long)rows*k + k))
+                throw new IOException("Corrupt word bigrams");
+
+            WordBigramModel model = new WordBigramModel(k);
+            model.lexiconWords = words;
+            model.rows = slice(in, words);
+            model.next = slice(in, rows*k);
+            model.fallback = slice(in, k);
+            model.check();
+            return model;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Word bigram file is truncated");
+        }
+    }
+
+    /**
+     * @return the next n chars of in as a buffer of their own, moving in on past them
+     */
+    private static CharBuffer slice(ByteBuffer in, int n){
+        ByteBuffer bytes = in.slice();
+        bytes.limit(2*n);
+        in.position(in.position()+2*n);
+        return bytes.asCharBuffer();
+    }
+
+    /**
+     * Check that every row and prediction is in range and every row predicts something
+     */
+    private void check() throws IOException {
+        int rowCount = size();
+        for (int w=0; w<rows.limit(); w++)
+            if (rows.get(w)>rowCount) throw new IOException("Corrupt word bigrams - bad row");
+        for (int row=0; row<rowCount; row++)
+            if (next.get(row*k)==0) throw new IOException("Corrupt word bigrams - empty row");
+        for (int i=0; i<next.limit(); i++)
+            if (next.get(i)>lexiconWords) throw new IOException("Corrupt word bigrams - bad prediction");
+        for (int i=0; i<k; i++)
+            if (fallback.get(i)>lexiconWords) throw new IOException("Corrupt word bigrams - bad prediction");
+    }
+
+    private static void add(HashMap<Integer, Integer> counts, int word, int count){
+        Integer total = counts.get(word);
+        counts.put(word, total==null ? count : total+count);
+    }
+
+    /**
+     * Store the numbers+1 of the k highest counted words, highest first, in to from offset
+     */
+    private void top(HashMap<Integer, Integer> counts, Dawg lexicon, char[] to, int offset){
+        TopWords top = new TopWords(k, lexicon);
+        for (Map.Entry<Integer, Integer> e : counts.entrySet())
+            top.add(e.getKey(), e.getValue());
+        for (int i=0; i<top.size; i++)
+            to[offset+i] = (char)(top.words[i]+1);
+    }
+
+    /**
+     * The k highest counted words seen so far, kept sorted by insertion with equal counts in
+     * alphabetical order, so the result doesn't depend on the order they are added in - each
+     * word is added once
+     */
+    private static class TopWords {
+        final Dawg lexicon;
+        final int[] words;
+        final int[] counts;
+        int size = 0;
+
+        TopWords(int k, Dawg lexicon){
+            this.lexicon = lexicon;
+            words = new int[k];
+            counts = new int[k];
+        }
+
+        void add(int word, int count){
+            int at = size;
+            while (at>0 && before(word, count, at-1)) at--;
+            if (at>=words.length) return;
+            int moved = Math.min(size, words.length-1)-at;
+            System.arraycopy(words, at, words, at+1, moved);
+            System.arraycopy(counts, at, counts, at+1, moved);
+            words[at] = word;
+            counts[at] = count;
+            size = Math.min(size+1, words.length);
+        }
+
+        /**
+         * @return true if word with count goes before the i'th word
+         */
+        private boolean before(int word, int count, int i){
+            if (count!=counts[i]) return count>counts[i];
+            return lexicon.word(word).compareTo(lexicon.word(words[i]))<0;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package uk.org.textentry.wearwatch_shared;
+/**
+ * Command line tool that compiles the word frequency and word bigram lists into the binary
+ * Dawg lexicon and WordBigramModel that WordPredictor loads at startup
+ *
+ * Run by the compileWordModels task in the shared build.gradle so the lists are parsed and
+ * sorted on the build machine rather than on the watch. Must only use plain Java (no Android classes)
+ * as it runs on the build machine.
+ *
+ * Usage: WordModelCompiler [-k 3] [-lexicon wordlist.txt lexicon.dawg] [-bigrams wordbigrams.txt word_bigrams.wbg]
+ *
+ * -k is the number of completions kept per prefix and predictions per previous word, and should
+ * be WordPredictor's number of suggestions. -bigrams needs -lexicon, as the bigram model numbers
+ * its words as the lexicon does.
+ *
+ *  Distributed under MIT License
+ *
+ *  Copyright (c) 2017 Mark Dunlop at University of Strathclyde (Scotland, UK, EU)
+ *  https://personal.cis.strath.ac.uk/mark.dunlop/research/
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE..
+ */
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+
+public class WordModelCompiler {
+
+    public static void main(String[] args) throws IOException {
+        int k = 3;
+        String wordList = null, lexiconFile = null, bigramList = null, bigramFile = null;
+        boolean usage = args.length==0;
+        for (int i=0; i<args.length && !usage; i++) {
+            if (args[i].equals("-k") && i+1<args.length) k = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-lexicon") && i+2<args.length) {
+                wordList = args[++i];
+                lexiconFile = args[++i];
+            } else if (args[i].equals("-bigrams") && i+2<args.length) {
+                bigramList = args[++i];
+                bigramFile = args[++i];
+            } else
+                usage = true;
+        }
+        if (usage || bigramList!=null && wordList==null) {
+            System.err.println("Usage: WordModelCompiler [-k 3] [-lexicon wordlist.txt lexicon.dawg] [-bigrams wordbigrams.txt word_bigrams.wbg]");
+            System.exit(1);
+        }
+
+        if (wordList!=null) {
+            long start = System.currentTimeMillis();
+            DawgBuilder lexicon = DawgBuilder.read(wordList, k);
+            File output = new File(lexiconFile);
+            OutputStream out = new FileOutputStream(create(output));
+            try {
+                lexicon.write(out);
+            } finally {
+                out.close();
+            }
+            System.out.println("Wrote "+output+" ("+output.length()+" bytes, "+lexicon.wordCount()+" words, "
+                    +lexicon.stateCount()+" states) in "+(System.currentTimeMillis()-start)+"ms");
+        }
+
+        if (bigramList!=null) {
+            long start = System.currentTimeMillis();
+            Dawg lexicon = readLexicon(new File(lexiconFile));
+            WordBigramModel bigrams = new WordBigramModel(k);
+            int entries;
+            Reader in = new InputStreamReader(new FileInputStream(bigramList), "UTF-8");
+            try {
+                entries = bigrams.load(in, lexicon);
+            } finally {
+                in.close();
+            }
+            File output = new File(bigramFile);
+            OutputStream out = new FileOutputStream(create(output));
+            try {
+                bigrams.write(out);
+            } finally {
+                out.close();
+            }
+            System.out.println("Wrote "+output+" ("+output.length()+" bytes, "+entries+" bigrams, "
+                    +bigrams.size()+" previous words) in "+(System.currentTimeMillis()-start)+"ms");
+        }
+    }
+
+    /**
+     * @return the lexicon just written to file, mapped as WordPredictor maps it
+     */
+    private static Dawg readLexicon(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            return Dawg.read(in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length()));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return file, once its directory exists
+     */
+    private static File create(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Could not create "+dir);
+        return file;
+    }
+}
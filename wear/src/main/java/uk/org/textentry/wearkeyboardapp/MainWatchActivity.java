@@ -36,12 +36,13 @@ import java.util.concurrent.TimeUnit;
 
 import uk.org.textentry.wearwatch_shared.KeyboardView;
 import uk.org.textentry.wearwatch_shared.LogCat;
+import uk.org.textentry.wearwatch_shared.PredictionPipeline;
 import uk.org.textentry.wearwatch_shared.TextStats;
 import uk.org.textentry.wearwatch_shared.Util;
 import uk.org.textentry.wearwatch_shared.WordPredictor;
 
 
-public class MainWatchActivity extends WearableActivity implements GestureDetector.OnGestureListener, KeyboardView.KeyboardEventHandler, View.OnTouchListener {
+public class MainWatchActivity extends WearableActivity implements GestureDetector.OnGestureListener, KeyboardView.KeyboardEventHandler, View.OnTouchListener, PredictionPipeline.Listener {
     public static final int STATE_TYPING = 0;
     public static final int STATE_READING = 1;
     private static final String EMERGENCY_LOG_FILENAME = "error_log.txt";
@@ -54,7 +55,7 @@ public class MainWatchActivity extends WearableActivity implements GestureDetect
     private TextView mTextView;
     private KeyboardView keyboardView;
     private GestureDetectorCompat mDetector;
-    private WordPredictor predictor;
+    private PredictionPipeline predictor;
     private Button nextButton;
     private ScrollView textScrollView;
 
@@ -106,7 +107,7 @@ public class MainWatchActivity extends WearableActivity implements GestureDetect
         mTextView = (TextView) findViewById(R.id.text);
         keyboardView = (KeyboardView) findViewById(R.id.keyboardView);
 
-        predictor = new WordPredictor(keyboardView);
+        predictor = new PredictionPipeline(new WordPredictor(keyboardView), this);
     }
 
     @Override
@@ -273,16 +274,12 @@ public class MainWatchActivity extends WearableActivity implements GestureDetect
     }
 
     private void nextPhrase(){
-        if (mTextView.length()>0) {
-            TextStats predictorStats = predictor.finishSentanceAndStartAnew();
-            if (predictorStats.valid()) {
-                String predictorStatsString = predictorStats.toTabSeparatedString();
-                sendMessageToPhone("sentenceData", predictorStatsString);
-            }
-        }
+        if (mTextView.length()>0)
+            predictor.finishSentence();//stats sent in onSentenceFinished
         setupForDisplayState(currentDisplayState);
         hadFirstLetter=false;
         afterBackSpace=false;
+        newWord=true;
     }
 
     /*
@@ -425,9 +422,7 @@ public class MainWatchActivity extends WearableActivity implements GestureDetect
         LogCat.d("onKeyboardLetter "+nearestChar);
         vibrate(false);
 
-        WordPredictor.PredictionResult result = predictor.suggestionFor(x,y);
-        keyboardView.setSuggestions(result.predictions);
-        mTextView.setText(result.fullText+"|");
+        predictor.tap(x,y);
 
         if (!hadFirstLetter){
             hadFirstLetter=true;
@@ -438,26 +433,14 @@ public class MainWatchActivity extends WearableActivity implements GestureDetect
 
         afterBackSpace=false;
         newWord=false;
-
-        Util.scrollToBottom(textScrollView);
     }
 
     @SuppressLint("SetTextI18n")
     @Override
     public void onKeyboardBackspace() {
         LogCat.d("onKeyboardBackspace");
-        try {
-            vibrate(true);
-            WordPredictor.PredictionResult result = predictor.deleteLast();
-            String currentWord = result.currentSuggestion;
-            keyboardView.setSuggestions(result.predictions);
-            mTextView.setText(result.fullText+"|");
-            newWord=currentWord.length()==0;
-        } catch (KeyboardView.KeyboardException e) {
-            LogCat.e("Error on backspace");
-            e.printStackTrace();
-        }
-        Util.scrollToBottom(textScrollView);
+        vibrate(true);
+        predictor.backspace();
         afterBackSpace=true;
     }
 
@@ -466,14 +449,10 @@ public class MainWatchActivity extends WearableActivity implements GestureDetect
     @Override
     public void onKeyboardSpace() {
         LogCat.d("onKeyboardSpace");
-        if (!newWord) {//not already put in a space
+        if (!newWord) //not already put in a space - the pipeline checks again in case a backspace is still being decoded
             vibrate(true);
-            WordPredictor.PredictionResult finalWord = predictor.suggestionOnSpace();
-            keyboardView.clearSuggestions();
-            mTextView.setText(finalWord.fullText + "|");
-            newWord = true;
-        }
-        Util.scrollToBottom(textScrollView);
+        predictor.space();
+        newWord = true;
     }
 
     @SuppressLint("SetTextI18n")
@@ -481,11 +460,26 @@ public class MainWatchActivity extends WearableActivity implements GestureDetect
     public void onKeyboardSuggestionPicked(String s) {
         LogCat.d("onKeyboardSuggestionPicked");
         vibrate(true);
-        WordPredictor.PredictionResult result = predictor.suggestionPicked(s);
+        predictor.suggestionPicked(s);
+        newWord = true;
+    }
+
+    @SuppressLint("SetTextI18n")
+    @Override
+    public void onPrediction(WordPredictor.PredictionResult result, boolean newWord, long sequence) {
+        keyboardView.setSuggestions(result.predictions);
         mTextView.setText(result.fullText+"|");
-        keyboardView.clearSuggestions();
+        if (predictor.isLatest(sequence))//otherwise keys already pressed have changed it
+            this.newWord = newWord;
         Util.scrollToBottom(textScrollView);
-        newWord = true;
+    }
+
+    @Override
+    public void onSentenceFinished(TextStats predictorStats) {
+        if (predictorStats.valid()) {
+            String predictorStatsString = predictorStats.toTabSeparatedString();
+            sendMessageToPhone("sentenceData", predictorStatsString);
+        }
     }
 
     //----- Handle Touch Events ----//